@@ -1,9 +1,12 @@
 package com.example.githubapi;
 
+import com.example.githubapi.service.PayloadRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(PayloadRuntimeHints.class)
 public class GitHubApiApplication {
 
 	public static void main(String[] args) {
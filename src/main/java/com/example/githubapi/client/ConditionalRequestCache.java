@@ -0,0 +1,138 @@
+package com.example.githubapi.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Revalidates upstream GET responses with {@code If-None-Match} instead of downloading them
+ * again. Successful responses carrying an {@code ETag} are kept in a bounded in-memory cache
+ * keyed by the resource's path and query, not its host: the {@link UpstreamRouter} may send
+ * the revalidation to a different endpoint than the one that answered first, and the
+ * endpoints serve the same resources. The key also holds the label of the credential the
+ * {@link RateLimitScheduler} picked for the call, so a body fetched with one token is never
+ * replayed to a call made with another, which may not see the same resources. When GitHub
+ * answers {@code 304 Not Modified} the cached body is replayed as a {@code 200}. GitHub does
+ * not count 304 responses against the rate limit.
+ */
+public class ConditionalRequestCache implements ExchangeFilterFunction {
+
+    private static final List<String> REPLAYED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG, HttpHeaders.LINK);
+
+    private final Cache<String, CachedResponse> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    public ConditionalRequestCache(DataSize maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String url, CachedResponse response) -> url.length() + response.body().length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "github.etag");
+        this.hits = conditionalCounter(meterRegistry, "hit");
+        this.misses = conditionalCounter(meterRegistry, "miss");
+        this.notModified = conditionalCounter(meterRegistry, "not_modified");
+    }
+
+    private static Counter conditionalCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("github.etag.requests")
+                .description("Upstream GET requests by conditional cache outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.method() != HttpMethod.GET) {
+            return next.exchange(request);
+        }
+
+        String key = resourceKey(request);
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached == null) {
+            misses.increment();
+            return next.exchange(request).flatMap(response -> store(key, response));
+        }
+
+        hits.increment();
+        ClientRequest conditional = ClientRequest.from(request)
+                .headers(headers -> headers.setIfNoneMatch(cached.etag()))
+                .build();
+        return next.exchange(conditional).flatMap(response -> {
+            if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                notModified.increment();
+                return response.releaseBody().then(Mono.fromSupplier(() -> replay(response, cached)));
+            }
+            return store(key, response);
+        });
+    }
+
+    private static String resourceKey(ClientRequest request) {
+        URI url = request.url();
+        String resource = url.getRawQuery() == null ? url.getRawPath() : url.getRawPath() + "?" + url.getRawQuery();
+        return request.attribute(GitHubTokenPool.CREDENTIAL_ATTRIBUTE)
+                .map(credential -> credential + " " + resource)
+                .orElse(resource);
+    }
+
+    private Mono<ClientResponse> store(String key, ClientResponse response) {
+        String etag = response.headers().asHttpHeaders().getETag();
+        if (!response.statusCode().is2xxSuccessful() || etag == null) {
+            cache.invalidate(key);
+            return Mono.just(response);
+        }
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(body -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    REPLAYED_HEADERS.forEach(name -> {
+                        List<String> values = response.headers().header(name);
+                        if (!values.isEmpty()) {
+                            headers.put(name, values);
+                        }
+                    });
+                    CachedResponse cached = new CachedResponse(etag, headers, body);
+                    cache.put(key, cached);
+                    return withBody(response.mutate(), cached);
+                });
+    }
+
+    /**
+     * Builds a {@code 200} from the {@code 304}, keeping its fresh headers (rate limit and so
+     * on) but restoring the cached body and the headers describing it.
+     */
+    private ClientResponse replay(ClientResponse notModifiedResponse, CachedResponse cached) {
+        return withBody(notModifiedResponse.mutate().statusCode(HttpStatus.OK), cached);
+    }
+
+    private ClientResponse withBody(ClientResponse.Builder builder, CachedResponse cached) {
+        return builder
+                .headers(headers -> headers.putAll(cached.headers()))
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(cached.body())))
+                .build();
+    }
+
+    private record CachedResponse(String etag, HttpHeaders headers, byte[] body) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.githubapi.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credentials used for upstream calls, each with its own quota per rate-limit resource tracked
+ * from the {@code X-RateLimit-*} headers of the responses it received. Every call goes to the
+ * credential with the most budget left for the resource it counts against; a credential whose
+ * budget is used up is parked until its window resets. With no tokens configured the pool holds
+ * a single anonymous credential.
+ * <p>
+ * Tokens never appear in metrics; credentials are tagged {@code token-1}, {@code token-2}, ...
+ * in configuration order, or {@code anonymous}. The gauges report the {@code core} (REST) quota.
+ */
+public class GitHubTokenPool {
+
+    /** Request attribute carrying the label of the credential a call is sent with. */
+    static final String CREDENTIAL_ATTRIBUTE = GitHubTokenPool.class.getName() + ".credential";
+
+    /** Budget assumed for a credential before its first response, GitHub's authenticated limit. */
+    static final int DEFAULT_LIMIT = 5000;
+
+    private final List<Credential> credentials;
+    private final Clock clock;
+
+    public GitHubTokenPool(Collection<String> tokens, Clock clock, MeterRegistry meterRegistry) {
+        this.clock = clock;
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(tokens.stream()
+                .map(String::trim)
+                .filter(token -> !token.isEmpty())
+                .toList()));
+
+        List<Credential> credentials = new ArrayList<>();
+        if (distinct.isEmpty()) {
+            credentials.add(new Credential("anonymous", null, meterRegistry));
+        }
+        for (int i = 0; i < distinct.size(); i++) {
+            credentials.add(new Credential("token-" + (i + 1), distinct.get(i), meterRegistry));
+        }
+        this.credentials = List.copyOf(credentials);
+
+        Gauge.builder("github.ratelimit.parked", this, pool -> pool.parkedCount(pool.clock.instant(), RateLimitState.CORE))
+                .description("Credentials parked until their rate-limit window resets")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The credential with the most budget left for {@code resource}, parked or not; callers
+     * decide whether its budget is enough for the call at hand.
+     */
+    Credential select(String resource) {
+        Instant now = clock.instant();
+        Credential best = credentials.get(0);
+        for (Credential credential : credentials) {
+            if (credential.budget(now, resource) > best.budget(now, resource)) {
+                best = credential;
+            }
+        }
+        return best;
+    }
+
+    /** REST requests left across all credentials, minus those already on their way. */
+    public int availableBudget() {
+        return availableBudget(RateLimitState.CORE);
+    }
+
+    /** Requests left for {@code resource} across all credentials, minus those already on their way. */
+    public int availableBudget(String resource) {
+        Instant now = clock.instant();
+        return credentials.stream().mapToInt(credential -> Math.max(0, credential.budget(now, resource))).sum();
+    }
+
+    /** Time until the first credential's current window for {@code resource} resets. */
+    Duration untilFirstReset(String resource) {
+        Instant now = clock.instant();
+        return credentials.stream()
+                .filter(credential -> credential.hasActiveWindow(now, resource))
+                .map(credential -> Duration.between(now, credential.state().resetAt(resource)))
+                .min(Duration::compareTo)
+                .orElse(Duration.ZERO);
+    }
+
+    private int parkedCount(Instant now, String resource) {
+        return (int) credentials.stream().filter(credential -> credential.isParked(now, resource)).count();
+    }
+
+    static final class Credential {
+
+        private final String label;
+        private final String token;
+        private final RateLimitState state = new RateLimitState();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Epoch millis before which the next paced call may not be sent
+        private final AtomicLong nextPacedSlot = new AtomicLong();
+        private final Counter requests;
+
+        private Credential(String label, String token, MeterRegistry meterRegistry) {
+            this.label = label;
+            this.token = token;
+            Gauge.builder("github.ratelimit.remaining", state, quota -> quota.remaining(RateLimitState.CORE))
+                    .description("Remaining upstream requests in the current rate-limit window, -1 if unknown")
+                    .tag("token", label)
+                    .register(meterRegistry);
+            this.requests = Counter.builder("github.ratelimit.requests")
+                    .description("Upstream calls sent with this credential")
+                    .tag("token", label)
+                    .register(meterRegistry);
+        }
+
+        String label() {
+            return label;
+        }
+
+        /** The token to send, or {@code null} for the anonymous credential. */
+        String token() {
+            return token;
+        }
+
+        RateLimitState state() {
+            return state;
+        }
+
+        void acquire() {
+            inFlight.incrementAndGet();
+        }
+
+        void countRequest() {
+            requests.increment();
+        }
+
+        void release() {
+            inFlight.decrementAndGet();
+        }
+
+        boolean hasActiveWindow(Instant now, String resource) {
+            return state.isKnown(resource) && now.isBefore(state.resetAt(resource));
+        }
+
+        /**
+         * Requests left for {@code resource} in the current window minus those already on their
+         * way, whatever resource those count against.
+         */
+        int budget(Instant now, String resource) {
+            int remaining = hasActiveWindow(now, resource) ? state.remaining(resource)
+                    : state.limit(resource) > 0 ? state.limit(resource) : DEFAULT_LIMIT;
+            return remaining - inFlight.get();
+        }
+
+        /**
+         * Reserves the next paced slot, one {@code spacing} after the previous one and never in
+         * the past, and returns how long to wait for it; {@code null} when that is longer than
+         * {@code maxWait}, in which case nothing is reserved.
+         */
+        Duration takePacedSlot(Instant now, Duration spacing, Duration maxWait) {
+            long nowMillis = now.toEpochMilli();
+            while (true) {
+                long last = nextPacedSlot.get();
+                long slot = Math.max(nowMillis, last);
+                Duration wait = Duration.ofMillis(slot - nowMillis);
+                if (wait.compareTo(maxWait) > 0) {
+                    return null;
+                }
+                if (nextPacedSlot.compareAndSet(last, slot + spacing.toMillis())) {
+                    return wait;
+                }
+            }
+        }
+
+        boolean isParked(Instant now, String resource) {
+            return hasActiveWindow(now, resource) && budget(now, resource) <= 0;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.githubapi.client;
+
+import com.example.githubapi.exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.regex.Pattern;
+
+/**
+ * Gate for every upstream call, driven by GitHub's {@code X-RateLimit-*} response headers.
+ * Each call is admitted against the quota of the resource it counts against: {@code graphql}
+ * for GraphQL queries, {@code search} for search calls and {@code core} for the rest, so a
+ * response for one resource never resets another's budget.
+ * <ul>
+ *     <li>Each call is sent with the credential from the {@link GitHubTokenPool} that has the
+ *     most budget left, and that credential's quota is updated from the response.</li>
+ *     <li>Calls that would exceed the remaining quota fail fast with
+ *     {@link RateLimitExceededException} instead of reaching GitHub.</li>
+ *     <li>Low priority calls (follow-up pages, branch listings) leave {@code reserve} requests
+ *     for high priority ones (the first page of a user's repositories, GraphQL queries), so new
+ *     client requests can still start while a large fan-out is running.</li>
+ *     <li>Once fewer than {@code paceBelow} requests remain, low priority calls are spread
+ *     evenly over the time left until the reset: each takes the credential's next free slot, so
+ *     concurrent calls go one spacing apart instead of all at once. A call whose slot is more
+ *     than {@code maxWait} away is rejected instead.</li>
+ * </ul>
+ * {@code reserve} and {@code paceBelow} are sized for an authenticated limit of 5000 requests an
+ * hour. Against a smaller reported {@code X-RateLimit-Limit} (60 for anonymous calls) they are
+ * capped at a tenth and a fifth of it, so branch calls are not refused while most of the quota
+ * is still left.
+ * Until a credential's first response arrives nothing is known about its quota and calls pass
+ * through.
+ */
+public class RateLimitScheduler implements ExchangeFilterFunction {
+
+    // Anchored at the end only, so a base URL path such as GitHub Enterprise's /api/v3 still matches
+    private static final Pattern REPOSITORY_LISTING = Pattern.compile("/users/[^/]+/repos$");
+    private static final Pattern GRAPHQL = Pattern.compile("/graphql$");
+    private static final Pattern SEARCH = Pattern.compile("/search/[^/]+$");
+
+    private static final int MAX_RESERVE_DIVISOR = 10;
+    private static final int MAX_PACE_BELOW_DIVISOR = 5;
+
+    private final GitHubTokenPool tokenPool;
+    private final int reserve;
+    private final int paceBelow;
+    private final Duration maxWait;
+    private final Clock clock;
+
+    private final Counter rejected;
+
+    public RateLimitScheduler(GitHubTokenPool tokenPool, int reserve, int paceBelow, Duration maxWait,
+                              Clock clock, MeterRegistry meterRegistry) {
+        this.tokenPool = tokenPool;
+        this.reserve = reserve;
+        this.paceBelow = paceBelow;
+        this.maxWait = maxWait;
+        this.clock = clock;
+        this.rejected = Counter.builder("github.ratelimit.rejected")
+                .description("Upstream calls refused because the rate limit is or would be exceeded")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        boolean highPriority = isHighPriority(request);
+        String resource = resource(request);
+        return Mono.defer(() -> {
+            GitHubTokenPool.Credential credential = tokenPool.select(resource);
+            Mono<Void> admission = admit(credential, resource, highPriority);
+            // Counted as in flight while paced, so concurrent calls see the budget already taken
+            credential.acquire();
+            return admission
+                    .then(Mono.defer(() -> {
+                        credential.countRequest();
+                        return next.exchange(authorize(request, credential));
+                    }))
+                    .flatMap(response -> record(credential, resource, response))
+                    .doFinally(signal -> credential.release());
+        });
+    }
+
+    private Mono<Void> admit(GitHubTokenPool.Credential credential, String resource, boolean highPriority) {
+        Instant now = clock.instant();
+        if (!credential.hasActiveWindow(now, resource)) {
+            return Mono.empty();
+        }
+
+        RateLimitState state = credential.state();
+        int available = credential.budget(now, resource) - (highPriority ? 0 : reserve(state, resource));
+        if (available <= 0) {
+            // The selected credential has the most budget, so none of the others can take the call
+            return reject(tokenPool.untilFirstReset(resource));
+        }
+        if (highPriority || state.remaining(resource) >= paceBelow(state, resource)) {
+            return Mono.empty();
+        }
+
+        Duration untilReset = Duration.between(now, state.resetAt(resource));
+        Duration spacing = untilReset.dividedBy(Math.max(1, state.remaining(resource)));
+        if (spacing.compareTo(maxWait) > 0) {
+            return reject(untilReset);
+        }
+        Duration wait = credential.takePacedSlot(now, spacing, maxWait);
+        if (wait == null) {
+            // The slots up to maxWait are taken; by then they are used and new ones are free
+            return reject(maxWait);
+        }
+        return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+    }
+
+    private int reserve(RateLimitState state, String resource) {
+        int limit = state.limit(resource);
+        return limit > 0 ? Math.min(reserve, limit / MAX_RESERVE_DIVISOR) : reserve;
+    }
+
+    private int paceBelow(RateLimitState state, String resource) {
+        int limit = state.limit(resource);
+        return limit > 0 ? Math.min(paceBelow, limit / MAX_PACE_BELOW_DIVISOR) : paceBelow;
+    }
+
+    private static ClientRequest authorize(ClientRequest request, GitHubTokenPool.Credential credential) {
+        ClientRequest.Builder builder = ClientRequest.from(request)
+                .attribute(GitHubTokenPool.CREDENTIAL_ATTRIBUTE, credential.label());
+        if (credential.token() != null) {
+            builder.headers(headers -> headers.setBearerAuth(credential.token()));
+        }
+        return builder.build();
+    }
+
+    private Mono<ClientResponse> record(GitHubTokenPool.Credential credential, String resource, ClientResponse response) {
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        RateLimitState state = credential.state();
+        String counted = RateLimitState.resourceOf(resource, headers);
+        state.update(counted, headers);
+
+        int status = response.statusCode().value();
+        boolean limited = status == 429 || (status == 403 && (state.remaining(counted) == 0 || headers.containsKey(HttpHeaders.RETRY_AFTER)));
+        if (!limited) {
+            return Mono.just(response);
+        }
+        Duration retryAfter = retryAfter(state, counted, headers);
+        return response.releaseBody().then(reject(retryAfter));
+    }
+
+    private Duration retryAfter(RateLimitState state, String resource, HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null && retryAfter.chars().allMatch(Character::isDigit)) {
+            return Duration.ofSeconds(Long.parseLong(retryAfter));
+        }
+        if (state.isKnown(resource)) {
+            Duration untilReset = Duration.between(clock.instant(), state.resetAt(resource));
+            return untilReset.isNegative() ? Duration.ZERO : untilReset;
+        }
+        return Duration.ofMinutes(1);
+    }
+
+    private <T> Mono<T> reject(Duration retryAfter) {
+        rejected.increment();
+        // Round up so clients never retry before the window actually resets
+        long seconds = retryAfter.toSeconds() + (retryAfter.toNanosPart() > 0 ? 1 : 0);
+        return Mono.error(new RateLimitExceededException(Duration.ofSeconds(Math.max(1, seconds))));
+    }
+
+    /** The rate-limit resource a call is expected to count against. */
+    static String resource(ClientRequest request) {
+        String path = request.url().getRawPath();
+        if (GRAPHQL.matcher(path).find()) {
+            return "graphql";
+        }
+        if (SEARCH.matcher(path).find()) {
+            return "search";
+        }
+        return RateLimitState.CORE;
+    }
+
+    static boolean isHighPriority(ClientRequest request) {
+        if (request.method() == HttpMethod.POST) {
+            return true;
+        }
+        if (!REPOSITORY_LISTING.matcher(request.url().getRawPath()).find()) {
+            return false;
+        }
+        String page = UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().getFirst("page");
+        return page == null || page.equals("1");
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.githubapi.client;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest quota reported by GitHub in the {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining}
+ * and {@code X-RateLimit-Reset} (epoch seconds) response headers, one per rate-limit resource.
+ * GitHub budgets REST ({@code core}), GraphQL ({@code graphql}) and search calls separately and
+ * names the one a response counted against in {@code X-RateLimit-Resource}.
+ */
+class RateLimitState {
+
+    static final String LIMIT = "X-RateLimit-Limit";
+    static final String REMAINING = "X-RateLimit-Remaining";
+    static final String RESET = "X-RateLimit-Reset";
+    static final String RESOURCE = "X-RateLimit-Resource";
+
+    static final String CORE = "core";
+
+    private static final Snapshot UNKNOWN = new Snapshot(-1, -1, Instant.EPOCH);
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Records the quota of the resource named in the response, or of {@code resource} (the one
+     * the call was expected to count against) when the response does not name it.
+     */
+    void update(String resource, HttpHeaders headers) {
+        Integer remaining = parseInt(headers.getFirst(REMAINING));
+        Long reset = parseLong(headers.getFirst(RESET));
+        if (remaining == null || reset == null) {
+            return;
+        }
+        Integer limit = parseInt(headers.getFirst(LIMIT));
+        snapshots.put(resourceOf(resource, headers),
+                new Snapshot(limit == null ? -1 : limit, remaining, Instant.ofEpochSecond(reset)));
+    }
+
+    static String resourceOf(String resource, HttpHeaders headers) {
+        String reported = headers.getFirst(RESOURCE);
+        return reported == null || reported.isBlank() ? resource : reported.trim();
+    }
+
+    boolean isKnown(String resource) {
+        return snapshot(resource).remaining() >= 0;
+    }
+
+    int limit(String resource) {
+        return snapshot(resource).limit();
+    }
+
+    int remaining(String resource) {
+        return snapshot(resource).remaining();
+    }
+
+    Instant resetAt(String resource) {
+        return snapshot(resource).resetAt();
+    }
+
+    private Snapshot snapshot(String resource) {
+        return snapshots.getOrDefault(resource, UNKNOWN);
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Snapshot(int limit, int remaining, Instant resetAt) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.githubapi.client;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Timeout and retry policy applied to each individual upstream call, so one slow or failing
+ * call cannot hold up a whole aggregation indefinitely.
+ * <p>
+ * Every attempt is bounded by {@code timeout}. Transient failures (timeouts, connection
+ * errors, 5xx responses) are retried up to {@code maxRetries} times with exponential backoff
+ * and jitter, so callers that failed together do not retry in lockstep. Other errors, such as
+ * 404s or a refused call from the rate-limit gate or circuit breaker, are passed on at once.
+ * Only read-only calls may be wrapped.
+ */
+public class UpstreamCallPolicy {
+
+    private final Duration timeout;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+
+    public UpstreamCallPolicy(Duration timeout, int maxRetries, Duration minBackoff, Duration maxBackoff) {
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public static UpstreamCallPolicy defaults() {
+        return new UpstreamCallPolicy(Duration.ofSeconds(10), 2, Duration.ofMillis(100), Duration.ofSeconds(2));
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        Mono<T> attempt = call.timeout(timeout);
+        if (maxRetries <= 0) {
+            return attempt;
+        }
+        return attempt.retryWhen(Retry.backoff(maxRetries, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(0.5)
+                .filter(UpstreamCallPolicy::isTransient)
+                // Surface the last failure itself rather than a RetryExhaustedException
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    public static boolean isTransient(Throwable error) {
+        if (error instanceof TimeoutException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        return error instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+}
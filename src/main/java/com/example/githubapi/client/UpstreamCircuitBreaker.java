@@ -0,0 +1,123 @@
+package com.example.githubapi.client;
+
+import com.example.githubapi.exceptions.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker around the GitHub host. After {@code failureThreshold} consecutive failed
+ * calls (connection errors, 5xx responses, or no response within {@code callTimeout}) the circuit opens and every call fails fast with
+ * {@link UpstreamUnavailableException} for {@code openDuration}. Then a single probe call is
+ * let through: if it succeeds the circuit closes, otherwise it stays open for another
+ * {@code openDuration}.
+ * <p>
+ * The breaker times calls out itself: a hanging GitHub is what it exists for, and a call
+ * cancelled by an outer timeout would end without a failure being recorded. {@code callTimeout}
+ * must therefore be shorter than the {@link UpstreamCallPolicy} timeout around the whole call.
+ * <p>
+ * State is published as the {@code github.circuit.state} gauge (0 closed, 1 open, 2 half-open).
+ */
+public class UpstreamCircuitBreaker implements ExchangeFilterFunction {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Duration callTimeout;
+    private final Clock clock;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private volatile Instant openedAt;
+    private final Counter rejected;
+
+    public UpstreamCircuitBreaker(int failureThreshold, Duration openDuration, Duration callTimeout, Clock clock,
+                                  MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.callTimeout = callTimeout;
+        this.clock = clock;
+        Gauge.builder("github.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("GitHub circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("github.circuit.rejected")
+                .description("Upstream calls refused while the circuit was open")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Instant opened = openedAt;
+            boolean probe = false;
+            if (opened != null) {
+                Instant retryAt = opened.plus(openDuration);
+                if (clock.instant().isBefore(retryAt) || !probeInFlight.compareAndSet(false, true)) {
+                    rejected.increment();
+                    return Mono.error(new UpstreamUnavailableException(untilRetry(retryAt)));
+                }
+                probe = true;
+            }
+
+            boolean isProbe = probe;
+            return next.exchange(request)
+                    .timeout(callTimeout)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            onFailure();
+                        } else {
+                            onSuccess();
+                        }
+                    })
+                    .doOnError(error -> onFailure())
+                    .doFinally(signal -> {
+                        // A cancelled probe proves nothing; let the next call try again
+                        if (isProbe && signal == SignalType.CANCEL) {
+                            probeInFlight.set(false);
+                        }
+                    });
+        });
+    }
+
+    State state() {
+        Instant opened = openedAt;
+        if (opened == null) {
+            return State.CLOSED;
+        }
+        return clock.instant().isBefore(opened.plus(openDuration)) ? State.OPEN : State.HALF_OPEN;
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        openedAt = null;
+        probeInFlight.set(false);
+    }
+
+    private void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || openedAt != null) {
+            openedAt = clock.instant();
+        }
+        probeInFlight.set(false);
+    }
+
+    private Duration untilRetry(Instant retryAt) {
+        Duration remaining = Duration.between(clock.instant(), retryAt);
+        long seconds = remaining.toSeconds() + (remaining.toNanosPart() > 0 ? 1 : 0);
+        return Duration.ofSeconds(Math.max(1, seconds));
+    }
+}
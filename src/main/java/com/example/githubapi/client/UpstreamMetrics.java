@@ -0,0 +1,65 @@
+package com.example.githubapi.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.regex.Pattern;
+
+/**
+ * Times every call that actually goes out to GitHub as {@code github.upstream.requests}, tagged
+ * with the kind of {@code resource} ({@code repos}, {@code branches}, {@code graphql} or
+ * {@code other}) and the response {@code status} code, or {@code IO_ERROR} when no response
+ * arrived. Each retry attempt is a call of its own; revalidations answered with {@code 304}
+ * show up under that status.
+ * <p>
+ * Registered as the innermost filter, so the timings are GitHub's latency plus the connection
+ * pool wait, without time spent in the rate-limit gate.
+ */
+public class UpstreamMetrics implements ExchangeFilterFunction {
+
+    private static final Pattern REPOSITORY_LISTING = Pattern.compile("/users/[^/]+/repos");
+    private static final Pattern BRANCH_LISTING = Pattern.compile("/repos/[^/]+/[^/]+/branches");
+
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String resource = resource(request.url().getPath());
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return next.exchange(request)
+                    .doOnNext(response -> sample.stop(timer(resource, String.valueOf(response.statusCode().value()))))
+                    .doOnError(error -> sample.stop(timer(resource, "IO_ERROR")));
+        });
+    }
+
+    private Timer timer(String resource, String status) {
+        return Timer.builder("github.upstream.requests")
+                .description("Calls sent to GitHub")
+                .tag("resource", resource)
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    static String resource(String path) {
+        if (REPOSITORY_LISTING.matcher(path).find()) {
+            return "repos";
+        }
+        if (BRANCH_LISTING.matcher(path).find()) {
+            return "branches";
+        }
+        if (path.endsWith("/graphql")) {
+            return "graphql";
+        }
+        return "other";
+    }
+}
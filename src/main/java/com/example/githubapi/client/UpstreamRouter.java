@@ -0,0 +1,251 @@
+package com.example.githubapi.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+/**
+ * Spreads GitHub calls over a list of equivalent endpoints, such as a GitHub Enterprise mirror
+ * or a caching proxy next to the public API. The WebClient resolves relative URIs against
+ * {@code baseUrl}; this filter swaps that prefix for the chosen endpoint.
+ * <p>
+ * Each call goes to the endpoint with the lowest expected latency: a moving average of its
+ * response times, multiplied by the calls it already has in flight. Failures count as slow
+ * responses, and the average of an idle endpoint decays so it is tried again after a while.
+ * <p>
+ * With hedging on, a {@code GET} that has not been answered after the {@code hedgePercentile}
+ * latency of its endpoint is sent again to the next best endpoint (the same one when there is
+ * only one), and the first response wins; the other call is cancelled or its body released.
+ * Hedges spend rate limit without passing the {@link RateLimitScheduler} (which sits outside and
+ * admits the call once), so they are capped at {@code maxHedgeRatio} of all calls and stop
+ * altogether while fewer than {@code minHedgeBudget} requests are left in {@code hedgeBudget}.
+ * <p>
+ * Published as {@code github.upstream.hedges} ({@code result} {@code sent} or {@code won}) and
+ * {@code github.upstream.endpoint.latency} (the moving average per {@code endpoint}).
+ */
+public class UpstreamRouter implements ExchangeFilterFunction {
+
+    /** Latencies an endpoint needs before its percentile is trusted as a hedge delay. */
+    static final int MIN_SAMPLES = 10;
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final long DECAY_NANOS = Duration.ofSeconds(10).toNanos();
+    private static final long FAILURE_PENALTY_NANOS = Duration.ofSeconds(1).toNanos();
+    /** Unused hedge allowance is banked up to this many hedges, for bursts of slow calls. */
+    private static final long MAX_BANKED_HEDGES = 10;
+    private static final long CREDIT_UNIT = 1_000;
+
+    private final String baseUrl;
+    private final List<Endpoint> endpoints;
+    private final boolean hedging;
+    private final double hedgePercentile;
+    private final Duration minHedgeDelay;
+    private final long creditPerCall;
+    private final IntSupplier hedgeBudget;
+    private final int minHedgeBudget;
+    private final AtomicLong hedgeCredit = new AtomicLong();
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public UpstreamRouter(String baseUrl, List<String> endpoints, boolean hedging, double hedgePercentile,
+                          Duration minHedgeDelay, double maxHedgeRatio, IntSupplier hedgeBudget, int minHedgeBudget,
+                          MeterRegistry meterRegistry) {
+        this.baseUrl = trimSlash(baseUrl);
+        this.endpoints = (endpoints.isEmpty() ? List.of(baseUrl) : endpoints).stream()
+                .map(UpstreamRouter::trimSlash)
+                .map(Endpoint::new)
+                .toList();
+        this.hedging = hedging;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelay = minHedgeDelay;
+        this.creditPerCall = Math.round(maxHedgeRatio * CREDIT_UNIT);
+        this.hedgeBudget = hedgeBudget;
+        this.minHedgeBudget = minHedgeBudget;
+        this.hedgesSent = Counter.builder("github.upstream.hedges")
+                .description("Duplicate calls sent to a second endpoint")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("github.upstream.hedges")
+                .description("Duplicate calls answered before the original")
+                .tag("result", "won")
+                .register(meterRegistry);
+        for (Endpoint endpoint : this.endpoints) {
+            Gauge.builder("github.upstream.endpoint.latency", endpoint, e -> e.expectedNanos(System.nanoTime()) / 1e9)
+                    .description("Moving average response time of an upstream endpoint")
+                    .tag("endpoint", endpoint.url)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String url = request.url().toString();
+        if (!url.startsWith(baseUrl)) {
+            return next.exchange(request);
+        }
+        String path = url.substring(baseUrl.length());
+        return Mono.defer(() -> {
+            Endpoint primary = select(null);
+            Mono<ClientResponse> first = attempt(primary, path, request, next);
+            if (!hedging || request.method() != HttpMethod.GET) {
+                return first;
+            }
+            bankHedgeCredit();
+            Duration delay = primary.hedgeDelay(hedgePercentile, minHedgeDelay);
+            if (delay == null) {
+                return first;
+            }
+
+            AtomicReference<ClientResponse> winner = new AtomicReference<>();
+            Mono<ClientResponse> second = Mono.delay(delay).flatMap(tick -> {
+                if (hedgeBudget.getAsInt() < minHedgeBudget || !spendHedgeCredit()) {
+                    return Mono.empty();
+                }
+                hedgesSent.increment();
+                return attempt(select(primary), path, request, next);
+            });
+            return Flux.mergeDelayError(2,
+                            claim(first, winner),
+                            claim(second, winner).doOnNext(response -> hedgesWon.increment()))
+                    .next();
+        });
+    }
+
+    /**
+     * Lets the first response through and releases any that arrive after it, so a losing call
+     * that completed in the same instant does not leak its connection.
+     */
+    private static Mono<ClientResponse> claim(Mono<ClientResponse> call, AtomicReference<ClientResponse> winner) {
+        return call.flatMap(response -> winner.compareAndSet(null, response)
+                ? Mono.just(response)
+                : response.releaseBody().then(Mono.empty()));
+    }
+
+    private Mono<ClientResponse> attempt(Endpoint endpoint, String path, ClientRequest request, ExchangeFunction next) {
+        ClientRequest routed = endpoint.url.equals(baseUrl)
+                ? request
+                : ClientRequest.from(request).url(URI.create(endpoint.url + path)).build();
+        return Mono.defer(() -> {
+            endpoint.inFlight.incrementAndGet();
+            long started = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            return next.exchange(routed)
+                    .doOnNext(response -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            endpoint.record(System.nanoTime() - started, response.statusCode().is5xxServerError());
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            endpoint.record(System.nanoTime() - started, true);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // Cancelled while waiting: it took at least this long
+                        if (recorded.compareAndSet(false, true)) {
+                            endpoint.record(System.nanoTime() - started, false);
+                        }
+                    })
+                    .doFinally(signal -> endpoint.inFlight.decrementAndGet());
+        });
+    }
+
+    /**
+     * The endpoint with the lowest expected latency, other than {@code excluded} unless it is
+     * the only one.
+     */
+    Endpoint select(Endpoint excluded) {
+        long now = System.nanoTime();
+        Endpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint == excluded) {
+                continue;
+            }
+            double cost = endpoint.expectedNanos(now) * (endpoint.inFlight.get() + 1);
+            if (cost < bestCost) {
+                best = endpoint;
+                bestCost = cost;
+            }
+        }
+        return best != null ? best : excluded;
+    }
+
+    private void bankHedgeCredit() {
+        hedgeCredit.updateAndGet(credit -> Math.min(credit + creditPerCall, MAX_BANKED_HEDGES * CREDIT_UNIT));
+    }
+
+    private boolean spendHedgeCredit() {
+        return hedgeCredit.getAndUpdate(credit -> credit >= CREDIT_UNIT ? credit - CREDIT_UNIT : credit) >= CREDIT_UNIT;
+    }
+
+    List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    static final class Endpoint {
+
+        final String url;
+        final AtomicInteger inFlight = new AtomicInteger();
+        private final long[] samples = new long[128];
+        private int sampleCount;
+        private double averageNanos;
+        private long lastUpdate;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        synchronized void record(long nanos, boolean failed) {
+            long now = System.nanoTime();
+            double sample = failed ? Math.max(nanos, FAILURE_PENALTY_NANOS) : nanos;
+            double current = expectedNanos(now);
+            averageNanos = current == 0 ? sample : current + EWMA_WEIGHT * (sample - current);
+            lastUpdate = now;
+            if (!failed) {
+                samples[sampleCount++ % samples.length] = nanos;
+            }
+        }
+
+        /** The moving average, decayed towards zero while no responses come in. */
+        synchronized double expectedNanos(long now) {
+            if (averageNanos == 0) {
+                return 0;
+            }
+            return averageNanos * Math.exp(-(double) (now - lastUpdate) / DECAY_NANOS);
+        }
+
+        /** The given percentile of recent successful latencies, or {@code null} with too few of them. */
+        synchronized Duration hedgeDelay(double percentile, Duration minDelay) {
+            int count = Math.min(sampleCount, samples.length);
+            if (count < MIN_SAMPLES) {
+                return null;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            long nanos = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+            return Duration.ofNanos(Math.max(nanos, minDelay.toNanos()));
+        }
+    }
+}
@@ -1,9 +1,31 @@
 package com.example.githubapi.config;
 
+import com.example.githubapi.client.ConditionalRequestCache;
+import com.example.githubapi.client.GitHubTokenPool;
+import com.example.githubapi.client.RateLimitScheduler;
+import com.example.githubapi.client.UpstreamCallPolicy;
+import com.example.githubapi.client.UpstreamCircuitBreaker;
+import com.example.githubapi.client.UpstreamMetrics;
+import com.example.githubapi.client.UpstreamRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
 
 @Configuration
 public class WebClientConfig {
@@ -11,10 +33,167 @@ public class WebClientConfig {
     @Value("${github.api.base-url}")
     private String githubApiBaseUrl;
 
+    @Value("${github.api.endpoints:}")
+    private List<String> githubApiEndpoints;
+
+    @Value("${github.api.token:}")
+    private String githubApiToken;
+
+    @Value("${github.api.max-in-memory-size:16MB}")
+    private DataSize maxInMemorySize;
+
     @Bean
-    public WebClient webClient() {
-        return WebClient.builder()
-                .baseUrl(githubApiBaseUrl)
+    @ConditionalOnProperty(name = "github.api.etag-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public ConditionalRequestCache conditionalRequestCache(
+            @Value("${github.api.etag-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${github.api.etag-cache.ttl:6h}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        return new ConditionalRequestCache(maxSize, ttl, meterRegistry);
+    }
+
+    /**
+     * {@code github.api.token} and the comma-separated {@code github.api.tokens} together form
+     * the pool; upstream throughput grows with every token added.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "github.api.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public GitHubTokenPool githubTokenPool(
+            @Value("${github.api.tokens:}") List<String> tokens,
+            MeterRegistry meterRegistry) {
+        List<String> pool = new ArrayList<>();
+        pool.add(githubApiToken);
+        pool.addAll(tokens);
+        return new GitHubTokenPool(pool, Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "github.api.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public RateLimitScheduler rateLimitScheduler(
+            GitHubTokenPool githubTokenPool,
+            @Value("${github.api.rate-limit.reserve:100}") int reserve,
+            @Value("${github.api.rate-limit.pace-below:500}") int paceBelow,
+            @Value("${github.api.rate-limit.max-wait:2s}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        return new RateLimitScheduler(githubTokenPool, reserve, paceBelow, maxWait, Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "github.api.resilience.circuit-breaker.enabled", havingValue = "true", matchIfMissing = true)
+    public UpstreamCircuitBreaker upstreamCircuitBreaker(
+            @Value("${github.api.resilience.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${github.api.resilience.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${github.api.resilience.circuit-breaker.call-timeout:8s}") Duration callTimeout,
+            MeterRegistry meterRegistry) {
+        return new UpstreamCircuitBreaker(failureThreshold, openDuration, callTimeout, Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean
+    public UpstreamCallPolicy upstreamCallPolicy(
+            @Value("${github.api.resilience.call-timeout:10s}") Duration callTimeout,
+            @Value("${github.api.resilience.max-retries:2}") int maxRetries,
+            @Value("${github.api.resilience.min-backoff:100ms}") Duration minBackoff,
+            @Value("${github.api.resilience.max-backoff:2s}") Duration maxBackoff) {
+        return new UpstreamCallPolicy(callTimeout, maxRetries, minBackoff, maxBackoff);
+    }
+
+    /**
+     * Connection pool for GitHub calls. Acquisition beyond {@code max-connections} waits in a
+     * bounded queue for at most {@code pending-acquire-timeout}, and idle or old connections are
+     * evicted in the background. Pool gauges are published as
+     * {@code reactor.netty.connection.provider.*} (active, idle, pending and max connections).
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider githubConnectionProvider(
+            @Value("${github.api.http.max-connections:50}") int maxConnections,
+            @Value("${github.api.http.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${github.api.http.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+            @Value("${github.api.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${github.api.http.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${github.api.http.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("github")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
                 .build();
     }
+
+    @Bean
+    public UpstreamMetrics upstreamMetrics(MeterRegistry meterRegistry) {
+        return new UpstreamMetrics(meterRegistry);
+    }
+
+    /**
+     * Routes calls over {@code github.api.endpoints} (just {@code github.api.base-url} when
+     * empty), optionally hedging slow GETs onto a second endpoint. Hedging pauses before the
+     * rate-limit gate starts pacing, unless {@code github.api.hedge.min-budget} says otherwise.
+     */
+    @Bean
+    public UpstreamRouter upstreamRouter(
+            @Value("${github.api.hedge.enabled:false}") boolean hedging,
+            @Value("${github.api.hedge.percentile:0.95}") double percentile,
+            @Value("${github.api.hedge.min-delay:50ms}") Duration minDelay,
+            @Value("${github.api.hedge.max-ratio:0.1}") double maxRatio,
+            @Value("${github.api.hedge.min-budget:${github.api.rate-limit.pace-below:500}}") int minBudget,
+            ObjectProvider<GitHubTokenPool> githubTokenPool,
+            MeterRegistry meterRegistry) {
+        GitHubTokenPool pool = githubTokenPool.getIfAvailable();
+        IntSupplier budget = pool != null ? pool::availableBudget : () -> Integer.MAX_VALUE;
+        return new UpstreamRouter(githubApiBaseUrl, githubApiEndpoints, hedging, percentile, minDelay, maxRatio,
+                budget, minBudget, meterRegistry);
+    }
+
+    /**
+     * HTTP/2 is negotiated over TLS via ALPN and falls back to HTTP/1.1; plain {@code http://}
+     * endpoints (local mirrors, tests) always use HTTP/1.1.
+     */
+    @Bean
+    public HttpClient githubHttpClient(
+            ConnectionProvider githubConnectionProvider,
+            @Value("${github.api.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${github.api.http.response-timeout:30s}") Duration responseTimeout,
+            @Value("${github.api.http.compress:true}") boolean compress,
+            @Value("${github.api.http.http2:true}") boolean http2) {
+        boolean tls = githubApiBaseUrl.startsWith("https:")
+                && githubApiEndpoints.stream().allMatch(endpoint -> endpoint.startsWith("https:"));
+        HttpProtocol[] protocols = http2 && tls
+                ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+        return HttpClient.create(githubConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .compress(compress)
+                .protocol(protocols);
+    }
+
+    @Bean
+    public WebClient webClient(HttpClient githubHttpClient,
+                               ObjectProvider<ConditionalRequestCache> conditionalRequestCache,
+                               ObjectProvider<RateLimitScheduler> rateLimitScheduler,
+                               ObjectProvider<UpstreamCircuitBreaker> upstreamCircuitBreaker,
+                               UpstreamRouter upstreamRouter,
+                               UpstreamMetrics upstreamMetrics) {
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(githubApiBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(githubHttpClient))
+                // A page of 100 repositories is several hundred KB, above the 256 KB codec default
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxInMemorySize.toBytes()));
+        // With the rate-limit gate on, credentials come from the token pool per call
+        if (rateLimitScheduler.getIfAvailable() == null && !githubApiToken.isBlank()) {
+            builder.defaultHeaders(headers -> headers.setBearerAuth(githubApiToken));
+        }
+        // Outermost first: cached revalidations still pass through the rate-limit gate, which picks
+        // the credential the conditional cache keys on, and the circuit breaker and the metrics only
+        // see calls that actually go out to GitHub. The router sits inside the breaker, which sees
+        // one outcome per call, while the metrics time each hedge
+        rateLimitScheduler.ifAvailable(builder::filter);
+        conditionalRequestCache.ifAvailable(builder::filter);
+        upstreamCircuitBreaker.ifAvailable(builder::filter);
+        builder.filter(upstreamRouter);
+        builder.filter(upstreamMetrics);
+        return builder.build();
+    }
 }
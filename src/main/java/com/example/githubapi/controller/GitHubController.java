@@ -1,42 +1,182 @@
 package com.example.githubapi.controller;
 
-import com.example.githubapi.exceptions.UserNotFoundException;
+import com.example.githubapi.exceptions.InvalidRequestException;
 import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.RepositoryQuery;
+import com.example.githubapi.model.UserBatchRequest;
+import com.example.githubapi.model.UserRepositories;
+import com.example.githubapi.service.BatchRepositoryService;
 import com.example.githubapi.service.GitHubService;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/github")
 public class GitHubController {
 
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final List<MediaType> BUFFERED_MEDIA_TYPES =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
     private final GitHubService gitHubService;
+    private final BatchRepositoryService batchRepositoryService;
+    private final int maxBatchSize;
+    private final CacheControl cacheControl;
+    private final RepositoryEtags etags = new RepositoryEtags();
 
-    public GitHubController(GitHubService gitHubService) {
+    public GitHubController(GitHubService gitHubService, BatchRepositoryService batchRepositoryService,
+                            @Value("${github.batch.max-users:100}") int maxBatchSize,
+                            @Value("${github.response.max-age:0s}") Duration maxAge) {
         this.gitHubService = gitHubService;
+        this.batchRepositoryService = batchRepositoryService;
+        this.maxBatchSize = maxBatchSize;
+        this.cacheControl = maxAge.isZero()
+                ? CacheControl.noCache().cachePublic()
+                : CacheControl.maxAge(maxAge).cachePublic();
     }
 
+    /**
+     * All non-fork repositories with their branches, or with any of the query parameters the
+     * page selected by them:
+     * <ul>
+     *     <li>{@code prefix}: only repositories whose name starts with it (case-insensitive)</li>
+     *     <li>{@code fields}: {@code name} for names only, {@code name,branches} for both</li>
+     *     <li>{@code includeBranches=false}: same as {@code fields=name}</li>
+     *     <li>{@code limit} and {@code cursor}: at most {@code limit} repositories ordered by
+     *     name, starting after {@code cursor}. A {@code Link} header with {@code rel="next"}
+     *     points to the next page while there is one.</li>
+     * </ul>
+     * Branches are only looked up for the repositories returned.
+     * <p>
+     * Responses carry a weak {@code ETag} over the repositories and branch heads shown, and a
+     * request whose {@code If-None-Match} still matches gets {@code 304} without a body. Besides
+     * JSON, {@code Accept: application/cbor} and {@code application/x-jackson-smile} select a
+     * binary encoding of the same fields.
+     */
     @GetMapping("/user/{username}/repositories")
-    public Mono<ResponseEntity<List<Repository>>> getUserRepositories(@PathVariable String username) {
-        return gitHubService.getUserRepositories(username, 1, new ArrayList<>())
-                .map(repositories -> new ResponseEntity<>(repositories, HttpStatus.OK))
-                .onErrorResume(UserNotFoundException.class, e -> handleUserNotFoundException(e, username));
+    public Mono<ResponseEntity<List<Repository>>> getUserRepositories(@PathVariable String username,
+                                                                      @RequestParam(required = false) String fields,
+                                                                      @RequestParam(required = false) Integer limit,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam(required = false) String prefix,
+                                                                      @RequestParam(required = false) Boolean includeBranches,
+                                                                      ServerHttpRequest request) {
+        RepositoryQuery query = RepositoryQuery.of(fields, limit, cursor, prefix, includeBranches);
+        MediaType mediaType = negotiate(request.getHeaders().getAccept());
+        if (query.isAll()) {
+            return gitHubService.getUserRepositories(username, 1, new ArrayList<>())
+                    .map(repositories -> cacheable(repositories, null, mediaType).body(repositories));
+        }
+        return gitHubService.findUserRepositories(username, query)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = cacheable(page.repositories(), page.nextCursor(), mediaType);
+                    if (page.nextCursor() != null) {
+                        String next = UriComponentsBuilder.fromUri(request.getURI())
+                                .replaceQueryParam("cursor", page.nextCursor())
+                                .build()
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+                    }
+                    return response.body(page.repositories());
+                });
+    }
+
+    /**
+     * A {@code 200} builder with the validators for {@code repositories}. The result handler
+     * compares the {@code ETag} with {@code If-None-Match} and answers {@code 304} before
+     * anything is serialized.
+     */
+    private ResponseEntity.BodyBuilder cacheable(List<Repository> repositories, String nextCursor, MediaType mediaType) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etags.etag(repositories, nextCursor, mediaType))
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (mediaType != null) {
+            response.contentType(mediaType);
+        }
+        return response;
+    }
+
+    /**
+     * The buffered encoding the client prefers by {@code Accept} quality, JSON when it accepts
+     * anything, or {@code null} to leave an unacceptable request to the default negotiation.
+     */
+    static MediaType negotiate(List<MediaType> accepted) {
+        if (accepted.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType best = null;
+        double bestQuality = 0;
+        for (MediaType accept : accepted) {
+            double quality = accept.getQualityValue();
+            if (quality <= bestQuality) {
+                continue;
+            }
+            for (MediaType candidate : BUFFERED_MEDIA_TYPES) {
+                if (accept.includes(candidate)) {
+                    best = candidate;
+                    bestQuality = quality;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Streaming variant of {@link #getUserRepositories}, selected with
+     * {@code Accept: application/x-ndjson} or {@code Accept: text/event-stream}. Without query
+     * parameters each repository is written as soon as its branches are known; with them the
+     * selected page is streamed once it is complete.
+     */
+    @GetMapping(value = "/user/{username}/repositories",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Repository> streamUserRepositories(@PathVariable String username,
+                                                   @RequestParam(required = false) String fields,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) String prefix,
+                                                   @RequestParam(required = false) Boolean includeBranches) {
+        RepositoryQuery query = RepositoryQuery.of(fields, limit, cursor, prefix, includeBranches);
+        if (query.isAll()) {
+            return gitHubService.streamUserRepositories(username);
+        }
+        return gitHubService.findUserRepositories(username, query)
+                .flatMapIterable(RepositoryPage::repositories);
     }
 
-    private Mono<ResponseEntity<List<Repository>>> handleUserNotFoundException(UserNotFoundException e, String username) {
-        Map<String, Object> errorResponse = Map.of(
-                "status", HttpStatus.NOT_FOUND.value(),
-                "message", e.getMessage()
-        );
-        return Mono.just(new ResponseEntity(errorResponse, HttpStatus.NOT_FOUND));
+    /**
+     * Repositories of many users in one request. Each user gets one entry with either their
+     * repositories or the error status and message of the single-user endpoint. A JSON array by
+     * default; with {@code Accept: application/x-ndjson} or {@code text/event-stream} each entry
+     * is written as soon as that user is done. At most {@code github.batch.max-users} usernames
+     * are accepted per request, duplicates included.
+     */
+    @PostMapping(value = "/users/repositories",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<UserRepositories> getUsersRepositories(@RequestBody UserBatchRequest request) {
+        if (request.usernames() != null && request.usernames().size() > maxBatchSize) {
+            throw new InvalidRequestException("At most " + maxBatchSize + " usernames per request");
+        }
+        return batchRepositoryService.getUsersRepositories(request.usernames());
     }
 }
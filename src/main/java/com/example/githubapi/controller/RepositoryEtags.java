@@ -0,0 +1,80 @@
+package com.example.githubapi.controller;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Weak entity tags for repository responses. The tag is a hash of everything a response
+ * shows (repository names and owners, and each branch's name and head SHA), so it changes
+ * exactly when a push, a new branch or a new repository changes the body. The encoding is
+ * part of the tag, since a JSON and a CBOR body are different documents.
+ * <p>
+ * The tags are weak because the server compresses bodies after the tag is set: a gzip and an
+ * identity body of the same document are different representations and must not share a
+ * strong tag. A weak tag only claims semantic equivalence, which they have, and
+ * {@code If-None-Match} is compared weakly either way.
+ * <p>
+ * Hashing a large listing is still work, so the hash of each list is kept as long as the list
+ * itself: a cached result is hashed once, however often it is served.
+ */
+final class RepositoryEtags {
+
+    private final Cache<List<Repository>, String> hashes = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    String etag(List<Repository> repositories, String nextCursor, MediaType mediaType) {
+        String hash = hashes.get(repositories, RepositoryEtags::hash);
+        if (nextCursor != null) {
+            hash = hash + "." + nextCursor;
+        }
+        String suffix = mediaType == null || mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)
+                ? ""
+                : "." + mediaType.getSubtype();
+        return "W/\"" + hash + suffix + "\"";
+    }
+
+    static String hash(List<Repository> repositories) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Repository repository : repositories) {
+            update(digest, repository.name());
+            update(digest, repository.ownerLogin());
+            digest.update((byte) (repository.partial() ? 1 : 0));
+            if (repository.branches() == null) {
+                digest.update((byte) 2);
+                continue;
+            }
+            for (Branch branch : repository.branches()) {
+                update(digest, branch.name());
+                update(digest, branch.lastCommitSha());
+            }
+            digest.update((byte) 3);
+        }
+        // 128 bits are plenty to tell versions of one user's listing apart
+        byte[] hash = digest.digest();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.githubapi.controller;
+
+import com.example.githubapi.exceptions.InvalidRequestException;
+import com.example.githubapi.exceptions.PayloadTooLargeException;
+import com.example.githubapi.model.WebhookResult;
+import com.example.githubapi.service.WebhookService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/github")
+@ConditionalOnProperty(name = "github.webhook.enabled", havingValue = "true")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+    private final int maxPayloadSize;
+
+    public WebhookController(WebhookService webhookService,
+                             @Value("${github.webhook.max-payload-size:25MB}") DataSize maxPayloadSize) {
+        this.webhookService = webhookService;
+        this.maxPayloadSize = (int) maxPayloadSize.toBytes();
+    }
+
+    /**
+     * Receiver for GitHub webhook deliveries. The raw body is read here, since the signature is
+     * computed over the exact bytes GitHub sent; push payloads can exceed the codec's default
+     * buffer limit, so the limit is GitHub's own payload cap. Larger bodies get {@code 413}.
+     */
+    @PostMapping("/webhooks")
+    public Mono<WebhookResult> receive(@RequestHeader(value = "X-GitHub-Event", required = false) String event,
+                                       @RequestHeader(value = "X-Hub-Signature-256", required = false) String signature,
+                                       ServerHttpRequest request) {
+        if (event == null || event.isBlank()) {
+            return Mono.error(new InvalidRequestException("Missing X-GitHub-Event header"));
+        }
+        return DataBufferUtils.join(request.getBody(), maxPayloadSize)
+                .onErrorMap(DataBufferLimitException.class, e -> new PayloadTooLargeException(maxPayloadSize))
+                .map(buffer -> {
+                    byte[] body = new byte[buffer.readableByteCount()];
+                    buffer.read(body);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(body -> webhookService.handle(event, signature, body));
+    }
+}
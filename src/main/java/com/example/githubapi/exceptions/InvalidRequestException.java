@@ -0,0 +1,18 @@
+package com.example.githubapi.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public Map<String, Object> getResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 400);
+        response.put("message", getMessage());
+        return response;
+    }
+}
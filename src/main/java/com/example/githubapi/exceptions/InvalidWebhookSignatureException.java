@@ -0,0 +1,18 @@
+package com.example.githubapi.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class InvalidWebhookSignatureException extends RuntimeException {
+
+    public InvalidWebhookSignatureException(String message) {
+        super(message);
+    }
+
+    public Map<String, Object> getResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 401);
+        response.put("message", getMessage());
+        return response;
+    }
+}
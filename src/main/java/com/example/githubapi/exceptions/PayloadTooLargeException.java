@@ -0,0 +1,18 @@
+package com.example.githubapi.exceptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(long maxBytes) {
+        super("Payload exceeds the limit of " + maxBytes + " bytes");
+    }
+
+    public Map<String, Object> getResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 413);
+        response.put("message", getMessage());
+        return response;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.githubapi.exceptions;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RateLimitExceededException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(Duration retryAfter) {
+        super("GitHub API rate limit exceeded, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public Map<String, Object> getResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 429);
+        response.put("message", getMessage());
+        return response;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.githubapi.exceptions;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+public class UpstreamUnavailableException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(Duration retryAfter) {
+        super("GitHub API is unavailable, retry after " + retryAfter.toSeconds() + " seconds");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public Map<String, Object> getResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", 503);
+        response.put("message", getMessage());
+        return response;
+    }
+}
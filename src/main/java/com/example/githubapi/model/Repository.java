@@ -1,6 +1,40 @@
 package com.example.githubapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
 import java.util.List;
 
-public record Repository(String name, String ownerLogin, List<Branch> branches) {
+/**
+ * @param branches  the repository's branches, or {@code null} (and omitted from JSON) when they
+ *                  were not requested
+ * @param partial   {@code true} when the branches could not be fetched and {@code branches} is
+ *                  incomplete; omitted from JSON otherwise
+ * @param changedAt latest of GitHub's {@code pushed_at} and {@code updated_at} when the branches
+ *                  were fetched, used to skip unchanged repositories on refresh; not serialized
+ */
+public record Repository(String name, String ownerLogin,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) List<Branch> branches,
+                         @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean partial,
+                         @JsonIgnore Instant changedAt) {
+
+    public Repository(String name, String ownerLogin, List<Branch> branches) {
+        this(name, ownerLogin, branches, false, null);
+    }
+
+    public Repository(String name, String ownerLogin, List<Branch> branches, boolean partial) {
+        this(name, ownerLogin, branches, partial, null);
+    }
+
+    public static Repository withoutBranches(String name, String ownerLogin) {
+        return new Repository(name, ownerLogin, List.of(), true);
+    }
+
+    /**
+     * A repository listed without looking up its branches.
+     */
+    public static Repository summary(String name, String ownerLogin) {
+        return new Repository(name, ownerLogin, null);
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.githubapi.model;
+
+import java.util.List;
+
+/**
+ * One page of a {@link RepositoryQuery}.
+ *
+ * @param nextCursor cursor for the following page, or {@code null} on the last page
+ */
+public record RepositoryPage(List<Repository> repositories, String nextCursor) {
+}
@@ -0,0 +1,116 @@
+package com.example.githubapi.model;
+
+import com.example.githubapi.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Filtering, projection and pagination of a user's repositories.
+ * <p>
+ * Repositories are ordered by name (case-insensitively) and filtered by a case-insensitive name
+ * {@code prefix}. A page holds at most {@code limit} repositories, starting after the one named
+ * by {@code cursor}; the cursor is opaque to callers and is the encoded name of the last
+ * repository of the previous page, so pages stay consistent while repositories are added.
+ * Without {@code includeBranches} repositories are returned by name and owner only.
+ *
+ * @param prefix          name prefix, or {@code null} for all repositories
+ * @param limit           page size, or {@code null} for no limit
+ * @param after           name of the last repository already returned, or {@code null}
+ * @param includeBranches whether branches are looked up
+ */
+public record RepositoryQuery(String prefix, Integer limit, String after, boolean includeBranches) {
+
+    public static final RepositoryQuery ALL = new RepositoryQuery(null, null, null, true);
+
+    private static final Set<String> FIELDS = Set.of("name", "branches");
+
+    private static final Comparator<String> BY_NAME =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * Builds a query from the endpoint's request parameters, any of which may be {@code null}.
+     * {@code fields} is a comma-separated subset of {@code name} and {@code branches}; a blank
+     * value is treated as absent.
+     */
+    public static RepositoryQuery of(String fields, Integer limit, String cursor, String prefix,
+                                     Boolean includeBranches) {
+        boolean branches = includeBranches == null || includeBranches;
+        if (fields != null && !fields.isBlank()) {
+            List<String> requested = List.of(fields.trim().toLowerCase(Locale.ROOT).split("\\s*,\\s*"));
+            for (String field : requested) {
+                if (!FIELDS.contains(field)) {
+                    throw new InvalidRequestException("Unknown field: " + field + "; supported fields are name, branches");
+                }
+            }
+            branches &= requested.contains("branches");
+        }
+        if (limit != null && limit < 1) {
+            throw new InvalidRequestException("limit must be at least 1");
+        }
+        return new RepositoryQuery(prefix == null || prefix.isEmpty() ? null : prefix, limit, decodeCursor(cursor),
+                branches);
+    }
+
+    /**
+     * Whether this query returns exactly what the unfiltered endpoint returns.
+     */
+    public boolean isAll() {
+        return prefix == null && limit == null && after == null && includeBranches;
+    }
+
+    /**
+     * Selects the page of {@code items} this query asks for, sorted by name.
+     */
+    public <T> Slice<T> select(List<T> items, Function<T, String> nameOf) {
+        List<T> matching = new ArrayList<>();
+        for (T item : items) {
+            String name = nameOf.apply(item);
+            if ((prefix == null || name.regionMatches(true, 0, prefix, 0, prefix.length()))
+                    && (after == null || BY_NAME.compare(name, after) > 0)) {
+                matching.add(item);
+            }
+        }
+        matching.sort(Comparator.comparing(nameOf, BY_NAME));
+        if (limit == null || matching.size() <= limit) {
+            return new Slice<>(matching, null);
+        }
+        List<T> page = List.copyOf(matching.subList(0, limit));
+        return new Slice<>(page, encodeCursor(nameOf.apply(page.get(limit - 1))));
+    }
+
+    /**
+     * Applies this query to a complete repository list, dropping branches when they are not
+     * requested.
+     */
+    public RepositoryPage apply(List<Repository> repositories) {
+        Slice<Repository> slice = select(repositories, Repository::name);
+        List<Repository> page = includeBranches ? slice.items()
+                : slice.items().stream().map(repository -> Repository.summary(repository.name(), repository.ownerLogin())).toList();
+        return new RepositoryPage(page, slice.nextCursor());
+    }
+
+    public record Slice<T>(List<T> items, String nextCursor) {
+    }
+
+    private static String encodeCursor(String name) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
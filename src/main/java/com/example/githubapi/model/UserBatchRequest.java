@@ -0,0 +1,6 @@
+package com.example.githubapi.model;
+
+import java.util.List;
+
+public record UserBatchRequest(List<String> usernames) {
+}
@@ -0,0 +1,21 @@
+package com.example.githubapi.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One user's entry in a batch response: {@code repositories} on success, otherwise the same
+ * {@code status} and {@code message} the single-user endpoint would have answered with.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserRepositories(String username, int status, List<Repository> repositories, String message) {
+
+    public static UserRepositories found(String username, List<Repository> repositories) {
+        return new UserRepositories(username, 200, repositories, null);
+    }
+
+    public static UserRepositories failed(String username, int status, String message) {
+        return new UserRepositories(username, status, null, message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.githubapi.model;
+
+/**
+ * @param event   the {@code X-GitHub-Event} that was delivered
+ * @param outcome {@code updated} when a cached result was patched, {@code invalidated} when it
+ *                had to be dropped, {@code not-cached} when the user is not cached, and
+ *                {@code ignored} for events that do not change any listing
+ */
+public record WebhookResult(String event, String outcome) {
+}
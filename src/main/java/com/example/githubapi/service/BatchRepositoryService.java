@@ -0,0 +1,136 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.exceptions.InvalidRequestException;
+import com.example.githubapi.exceptions.RateLimitExceededException;
+import com.example.githubapi.exceptions.ServiceOverloadedException;
+import com.example.githubapi.exceptions.UpstreamUnavailableException;
+import com.example.githubapi.exceptions.UserNotFoundException;
+import com.example.githubapi.model.UserRepositories;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up many users at once. Every batch submits its users to one shared work queue that
+ * loads at most {@code github.batch.concurrency} users at a time across all batches, so
+ * concurrent batch requests cannot multiply the load on GitHub. Usernames are de-duplicated
+ * case-insensitively (as GitHub treats them), and each user's result or error is emitted as
+ * soon as it is known. At most {@code github.batch.max-queued} users wait in the queue; a
+ * batch that does not fit is rejected as a whole with {@link ServiceOverloadedException}.
+ */
+@Service
+public class BatchRepositoryService {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final GitHubService gitHubService;
+    private final int maxUsers;
+    private final int maxQueued;
+
+    private final Sinks.Many<Job> queue = Sinks.many().unicast().onBackpressureBuffer();
+    // Jobs submitted but not yet picked up by the worker, kept at or below maxQueued
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Disposable worker;
+
+    public BatchRepositoryService(GitHubService gitHubService,
+                                  @Value("${github.batch.concurrency:8}") int concurrency,
+                                  @Value("${github.batch.max-users:100}") int maxUsers,
+                                  @Value("${github.batch.max-queued:1000}") int maxQueued) {
+        this.gitHubService = gitHubService;
+        this.maxUsers = maxUsers;
+        this.maxQueued = maxQueued;
+        this.worker = queue.asFlux()
+                .flatMap(this::run, concurrency)
+                .subscribe();
+    }
+
+    public Flux<UserRepositories> getUsersRepositories(List<String> usernames) {
+        return Flux.defer(() -> {
+            List<String> distinct = distinct(usernames);
+            reserve(distinct.size());
+            return Flux.fromIterable(distinct).flatMap(this::submit, distinct.size());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.dispose();
+    }
+
+    private List<String> distinct(List<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            throw new InvalidRequestException("usernames must not be empty");
+        }
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String username : usernames) {
+            if (username == null || username.isBlank()) {
+                throw new InvalidRequestException("usernames must not be blank");
+            }
+            distinct.putIfAbsent(username.trim().toLowerCase(Locale.ROOT), username.trim());
+        }
+        if (distinct.size() > maxUsers) {
+            throw new InvalidRequestException("At most " + maxUsers + " distinct usernames per request");
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    private void reserve(int jobs) {
+        int current;
+        do {
+            current = queued.get();
+            if (current + jobs > maxQueued) {
+                throw new ServiceOverloadedException(RETRY_AFTER);
+            }
+        } while (!queued.compareAndSet(current, current + jobs));
+    }
+
+    private Mono<UserRepositories> submit(String username) {
+        Job job = new Job(username, Sinks.one(), new AtomicBoolean());
+        // Producers from many request threads share the queue; retry briefly on contention
+        queue.emitNext(job, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        return job.result().asMono().doOnCancel(() -> job.cancelled().set(true));
+    }
+
+    private Mono<Void> run(Job job) {
+        queued.decrementAndGet();
+        if (job.cancelled().get()) {
+            return Mono.empty();
+        }
+        // Deferred so that a call failing before it returns a Mono still only fails this job;
+        // an error reaching flatMap would end the worker and leave every later batch waiting
+        return Mono.defer(() -> gitHubService.getUserRepositories(job.username(), 1, new ArrayList<>()))
+                .map(repositories -> UserRepositories.found(job.username(), repositories))
+                .onErrorResume(e -> Mono.just(toResult(job.username(), e)))
+                .doOnNext(result -> job.result().tryEmitValue(result))
+                .then();
+    }
+
+    private static UserRepositories toResult(String username, Throwable e) {
+        if (e instanceof UserNotFoundException notFound) {
+            return UserRepositories.failed(username, 404, notFound.getMessage());
+        }
+        if (e instanceof RateLimitExceededException rateLimited) {
+            return UserRepositories.failed(username, 429, rateLimited.getMessage());
+        }
+        if (e instanceof UpstreamUnavailableException unavailable) {
+            return UserRepositories.failed(username, 503, unavailable.getMessage());
+        }
+        return UserRepositories.failed(username, 500, "An unexpected error occurred");
+    }
+
+    private record Job(String username, Sinks.One<UserRepositories> result, AtomicBoolean cancelled) {
+    }
+}
@@ -0,0 +1,428 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.RepositoryQuery;
+import com.example.githubapi.store.SnapshotStore;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the aggregated repository list per username in front of the upstream
+ * {@link GitHubService}. Concurrent requests for the same user share one in-flight upstream
+ * load. Entries are served as-is for {@code github.cache.ttl}; after that the next read
+ * returns the stale list and triggers a background reload (given the stale list, so unchanged
+ * repositories need not be fetched again), until the entry is older than
+ * {@code ttl + stale-while-revalidate} and has to be loaded again in the foreground.
+ * <p>
+ * Usernames are matched case-insensitively, as GitHub logins are: {@code Octocat} and
+ * {@code octocat} share one entry, one snapshot and one upstream load.
+ * <p>
+ * Results with {@link Repository#partial() partial} repositories are handed to the requests
+ * waiting for them but not kept, and a partial background reload keeps the complete stale
+ * entry instead of replacing it.
+ * <p>
+ * With a {@link SnapshotStore} every complete load is also written to disk. A user missing
+ * from the cache (for example right after a restart) is then answered from their snapshot at
+ * once, and revalidated against GitHub in the background. Snapshot file I/O runs on Reactor's
+ * bounded elastic scheduler rather than the common pool that Caffeine and Reactor compute on.
+ * Writes, removals and clearing of snapshots run one at a time in the order they were made, so
+ * a removal cannot be overtaken by an earlier write still queued.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "github.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingGitHubService implements GitHubService {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingGitHubService.class);
+
+    private final GitHubService delegate;
+    private final SnapshotStore snapshotStore;
+    private final Executor snapshotReader;
+    private final Executor snapshotWriter;
+    private final Duration ttl;
+    private final AsyncLoadingCache<String, List<Repository>> cache;
+    private final Set<String> servedFromSnapshot = ConcurrentHashMap.newKeySet();
+    private final Map<String, Flux<Repository>> streams = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> requestListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public CachingGitHubService(@Qualifier("upstream") GitHubService delegate,
+                                @Value("${github.cache.ttl:5m}") Duration ttl,
+                                @Value("${github.cache.stale-while-revalidate:1h}") Duration staleWhileRevalidate,
+                                @Value("${github.cache.max-weight:1000000}") long maxWeight,
+                                ObjectProvider<SnapshotStore> snapshotStore,
+                                MeterRegistry meterRegistry) {
+        this(delegate, ttl, staleWhileRevalidate, maxWeight, Ticker.systemTicker(), ForkJoinPool.commonPool(),
+                snapshotStore.getIfAvailable(), task -> Schedulers.boundedElastic().schedule(task));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "github.repositories");
+    }
+
+    CachingGitHubService(GitHubService delegate, Duration ttl, Duration staleWhileRevalidate, long maxWeight,
+                         Ticker ticker, Executor executor) {
+        this(delegate, ttl, staleWhileRevalidate, maxWeight, ticker, executor, null);
+    }
+
+    CachingGitHubService(GitHubService delegate, Duration ttl, Duration staleWhileRevalidate, long maxWeight,
+                         Ticker ticker, Executor executor, SnapshotStore snapshotStore) {
+        this(delegate, ttl, staleWhileRevalidate, maxWeight, ticker, executor, snapshotStore, executor);
+    }
+
+    /**
+     * {@code snapshotExecutor} runs the blocking snapshot reads and writes; {@code executor}
+     * only the cache's own work.
+     */
+    CachingGitHubService(GitHubService delegate, Duration ttl, Duration staleWhileRevalidate, long maxWeight,
+                         Ticker ticker, Executor executor, SnapshotStore snapshotStore, Executor snapshotExecutor) {
+        this.delegate = delegate;
+        this.snapshotStore = snapshotStore;
+        this.snapshotReader = snapshotExecutor;
+        this.snapshotWriter = new SerialExecutor(snapshotExecutor);
+        this.ttl = ttl;
+        long lifetimeNanos = ttl.plus(staleWhileRevalidate).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .refreshAfterWrite(ttl)
+                .expireAfter(new Expiry<String, List<Repository>>() {
+                    @Override
+                    public long expireAfterCreate(String username, List<Repository> repositories, long currentTime) {
+                        return isPartial(repositories) ? 0 : lifetimeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String username, List<Repository> repositories, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(username, repositories, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String username, List<Repository> repositories, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .maximumWeight(maxWeight)
+                .weigher(CachingGitHubService::weigh)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<List<Repository>> asyncLoad(String username, Executor loadExecutor) {
+                        if (snapshotStore == null || !snapshotStore.contains(username)) {
+                            return load(username).toFuture();
+                        }
+                        return CompletableFuture.supplyAsync(() -> snapshotStore.get(username), snapshotReader)
+                                .thenCompose(snapshot -> {
+                                    if (snapshot.isEmpty()) {
+                                        return load(username).toFuture();
+                                    }
+                                    servedFromSnapshot.add(username);
+                                    return CompletableFuture.completedFuture(snapshot.get().repositories());
+                                });
+                    }
+
+                    @Override
+                    public CompletableFuture<List<Repository>> asyncReload(String username, List<Repository> stale,
+                                                                           Executor loadExecutor) {
+                        return delegate.refreshUserRepositories(username, stale)
+                                .doOnNext(fresh -> saveSnapshot(username, fresh))
+                                .map(fresh -> isPartial(fresh) && !isPartial(stale) ? stale : fresh)
+                                .toFuture();
+                    }
+                });
+    }
+
+    /**
+     * Only the full listing starting at the first page is cached; other pages go straight to
+     * the upstream service.
+     */
+    @Override
+    public Mono<List<Repository>> getUserRepositories(String username, int page, List<Repository> result) {
+        if (page != 1) {
+            return delegate.getUserRepositories(username, page, result);
+        }
+        return Mono.defer(() -> {
+            notifyRequest(username);
+            return cached(key(username));
+        });
+    }
+
+    /**
+     * Replays a cached or in-flight result when there is one. Otherwise the upstream stream is
+     * passed through as it arrives and its complete result is cached afterwards. Concurrent
+     * requests for a user who is not cached share that one upstream stream: streaming ones each
+     * receive what was already streamed before the rest, buffered ones wait for all of it.
+     */
+    @Override
+    public Flux<Repository> streamUserRepositories(String username) {
+        return Flux.defer(() -> {
+            notifyRequest(username);
+            String key = key(username);
+            CompletableFuture<List<Repository>> cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.fromFuture(cached, true).flatMapIterable(repositories -> repositories);
+            }
+            if (snapshotStore != null && snapshotStore.contains(key)) {
+                return cached(key).flatMapIterable(repositories -> repositories);
+            }
+            return streams.computeIfAbsent(key, this::sharedStream);
+        });
+    }
+
+    /**
+     * One upstream stream replayed to every subscriber, and dropped once it ends or its last
+     * subscriber cancels; by then a complete result is in the cache.
+     */
+    private Flux<Repository> sharedStream(String key) {
+        List<Repository> streamed = new ArrayList<>();
+        return delegate.streamUserRepositories(key)
+                .doOnNext(streamed::add)
+                .doOnComplete(() -> {
+                    if (!isPartial(streamed)) {
+                        List<Repository> repositories = List.copyOf(streamed);
+                        cache.put(key, CompletableFuture.completedFuture(repositories));
+                        saveSnapshot(key, repositories);
+                    }
+                })
+                .doFinally(signal -> streams.remove(key))
+                .replay()
+                .refCount();
+    }
+
+    /**
+     * The unfiltered query is the cached listing. Other queries are answered from the cached
+     * listing when there is one, and otherwise passed to the upstream service uncached, so a
+     * caller that only wants names does not pay for every branch listing.
+     */
+    @Override
+    public Mono<RepositoryPage> findUserRepositories(String username, RepositoryQuery query) {
+        if (query.isAll()) {
+            return getUserRepositories(username, 1, List.of()).map(query::apply);
+        }
+        return Mono.defer(() -> {
+            String key = key(username);
+            CompletableFuture<List<Repository>> cached = cache.getIfPresent(key);
+            if (cached != null || (snapshotStore != null && snapshotStore.contains(key))) {
+                notifyRequest(username);
+                return cached(key).map(query::apply);
+            }
+            return delegate.findUserRepositories(username, query);
+        });
+    }
+
+    @Override
+    public Mono<List<Branch>> getBranches(String username, String repoName) {
+        return delegate.getBranches(username, repoName);
+    }
+
+    /**
+     * Registers a callback invoked with the username of every cached request (the full listing,
+     * buffered or streamed), whether it is answered from the cache or not.
+     */
+    public void addRequestListener(Consumer<String> listener) {
+        requestListeners.add(listener);
+    }
+
+    /**
+     * Whether the user's entry is missing or will be due for revalidation within {@code horizon}.
+     */
+    public boolean refreshDueWithin(String username, Duration horizon) {
+        Optional<Duration> age = cache.synchronous().policy().refreshAfterWrite()
+                .flatMap(refresh -> refresh.ageOf(key(username)));
+        return age.isEmpty() || age.get().plus(horizon).compareTo(ttl) >= 0;
+    }
+
+    /**
+     * Reloads the user's entry ahead of time: a cached entry is revalidated like a stale one,
+     * a missing entry is loaded.
+     */
+    public Mono<Void> refresh(String username) {
+        return Mono.defer(() -> Mono.fromFuture(cache.synchronous().refresh(key(username)), true)).then();
+    }
+
+    /**
+     * The user's cached result, if one has finished loading.
+     */
+    public Optional<List<Repository>> cachedRepositories(String username) {
+        CompletableFuture<List<Repository>> cached = cache.getIfPresent(key(username));
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+            return Optional.of(cached.join());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Replaces the user's cached result with {@code change} applied to it, as a fresh write, and
+     * returns whether there was one. A result still loading is dropped instead, since it may
+     * have been read from GitHub before the change. A snapshot of a user who is not cached is
+     * removed, as it can no longer be patched.
+     */
+    public boolean update(String username, UnaryOperator<List<Repository>> change) {
+        String key = key(username);
+        CompletableFuture<List<Repository>> result = cache.asMap().computeIfPresent(key, (k, cached) -> {
+            if (!cached.isDone() || cached.isCompletedExceptionally()) {
+                return null;
+            }
+            List<Repository> changed = List.copyOf(change.apply(cached.join()));
+            saveSnapshot(k, changed);
+            return CompletableFuture.completedFuture(changed);
+        });
+        if (result == null) {
+            writeSnapshot(key, store -> store.remove(key));
+        }
+        return result != null;
+    }
+
+    /**
+     * Drops the cached result and the user's snapshot, if any.
+     */
+    public void invalidate(String username) {
+        String key = key(username);
+        cache.synchronous().invalidate(key);
+        servedFromSnapshot.remove(key);
+        writeSnapshot(key, store -> store.remove(key));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+        servedFromSnapshot.clear();
+        writeSnapshot("*", SnapshotStore::clear);
+    }
+
+    /** The cache and snapshot key of a username: GitHub logins are case-insensitive. */
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private Mono<List<Repository>> cached(String key) {
+        Flux<Repository> streaming = cache.getIfPresent(key) == null ? streams.get(key) : null;
+        if (streaming != null) {
+            // A streaming request is already loading this user; joining it avoids a second fan-out
+            return streaming.collectList();
+        }
+        // Cancelling one subscriber must not cancel the load other requests are waiting on.
+        return Mono.fromFuture(cache.get(key), true)
+                .doOnNext(repositories -> {
+                    if (servedFromSnapshot.remove(key)) {
+                        cache.synchronous().refresh(key);
+                    }
+                });
+    }
+
+    private void notifyRequest(String username) {
+        for (Consumer<String> listener : requestListeners) {
+            listener.accept(username);
+        }
+    }
+
+    private Mono<List<Repository>> load(String username) {
+        return delegate.getUserRepositories(username, 1, new ArrayList<>())
+                .doOnNext(repositories -> saveSnapshot(username, repositories));
+    }
+
+    private void saveSnapshot(String username, List<Repository> repositories) {
+        if (!isPartial(repositories)) {
+            writeSnapshot(username, store -> store.put(username, repositories));
+        }
+    }
+
+    /**
+     * Changes the snapshot log off the calling (event-loop) thread, after every change made
+     * before; a failed change only costs the warm start for this user.
+     */
+    private void writeSnapshot(String username, Consumer<SnapshotStore> change) {
+        if (snapshotStore == null) {
+            return;
+        }
+        snapshotWriter.execute(() -> {
+            try {
+                change.accept(snapshotStore);
+            } catch (UncheckedIOException e) {
+                log.warn("Failed to write snapshot user={}: {}", username, e.getMessage());
+            }
+        });
+    }
+
+    private static boolean isPartial(List<Repository> repositories) {
+        return repositories.stream().anyMatch(Repository::partial);
+    }
+
+    private static int weigh(String username, List<Repository> repositories) {
+        int weight = 1;
+        for (Repository repository : repositories) {
+            weight += 1 + repository.branches().size();
+        }
+        return weight;
+    }
+
+    /**
+     * Runs tasks one after another, in submission order, on the given executor.
+     */
+    private static final class SerialExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private final Executor executor;
+        private Runnable active;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                executor.execute(active);
+            }
+        }
+    }
+}
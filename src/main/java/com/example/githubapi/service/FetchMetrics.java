@@ -0,0 +1,90 @@
+package com.example.githubapi.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the stages of an upstream load in {@link GitHubServiceImpl}:
+ * <ul>
+ *     <li>{@code github.fetch.user}: a whole load, by {@code operation} and {@code outcome}</li>
+ *     <li>{@code github.fetch.pages} and {@code github.fetch.repositories}: listing pages and
+ *     non-fork repositories per user</li>
+ *     <li>{@code github.fetch.branches}: all branch pages of one repository</li>
+ *     <li>{@code github.fetch.fanout}: branch lookups in flight</li>
+ * </ul>
+ * Individual HTTP calls are timed by {@link com.example.githubapi.client.UpstreamMetrics}.
+ */
+final class FetchMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary pages;
+    private final DistributionSummary repositories;
+    private final Timer branches;
+    private final AtomicInteger branchLookups = new AtomicInteger();
+
+    FetchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.pages = DistributionSummary.builder("github.fetch.pages")
+                .description("Repository listing pages fetched per user")
+                .register(meterRegistry);
+        this.repositories = DistributionSummary.builder("github.fetch.repositories")
+                .description("Non-fork repositories listed per user")
+                .register(meterRegistry);
+        this.branches = Timer.builder("github.fetch.branches")
+                .description("Time to fetch all branches of one repository")
+                .register(meterRegistry);
+        Gauge.builder("github.fetch.fanout", branchLookups, AtomicInteger::get)
+                .description("Branch lookups in flight")
+                .register(meterRegistry);
+    }
+
+    void recordListing(int pageCount, int repositoryCount) {
+        pages.record(pageCount);
+        repositories.record(repositoryCount);
+    }
+
+    <T> Mono<T> timeBranches(Mono<T> lookup) {
+        return Mono.defer(() -> {
+            branchLookups.incrementAndGet();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return lookup.doFinally(signal -> {
+                branchLookups.decrementAndGet();
+                sample.stop(branches);
+            });
+        });
+    }
+
+    <T> Mono<T> timeUser(String operation, Mono<T> load) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return load.doFinally(signal -> sample.stop(userTimer(operation, signal)));
+        });
+    }
+
+    <T> Flux<T> timeUser(String operation, Flux<T> load) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return load.doFinally(signal -> sample.stop(userTimer(operation, signal)));
+        });
+    }
+
+    private Timer userTimer(String operation, SignalType signal) {
+        String outcome = switch (signal) {
+            case ON_COMPLETE -> "success";
+            case CANCEL -> "cancelled";
+            default -> "error";
+        };
+        return Timer.builder("github.fetch.user")
+                .description("Time to load a user's repositories from GitHub")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.client.UpstreamCallPolicy;
+import com.example.githubapi.exceptions.RateLimitExceededException;
+import com.example.githubapi.exceptions.UserNotFoundException;
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * {@link GitHubService} backed by the GitHub GraphQL v4 API. Each request fetches a page of
+ * non-fork repositories together with their first page of branch refs, so an account costs
+ * roughly one call per {@code github.api.graphql.page-size} repositories instead of one call
+ * per repository. Enabled with {@code github.api.mode=graphql}; GitHub requires a token
+ * ({@code github.api.token}) for GraphQL.
+ */
+@Service
+@ConditionalOnProperty(name = "github.api.mode", havingValue = "graphql")
+@Qualifier("upstream")
+public class GitHubGraphQlServiceImpl implements GitHubService {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubGraphQlServiceImpl.class);
+
+    private static final String REPOSITORIES_QUERY = """
+            query($login: String!, $cursor: String, $pageSize: Int!, $refsPageSize: Int!) {
+              repositoryOwner(login: $login) {
+                repositories(first: $pageSize, after: $cursor, isFork: false, ownerAffiliations: OWNER,
+                             privacy: PUBLIC, orderBy: {field: NAME, direction: ASC}) {
+                  pageInfo { hasNextPage endCursor }
+                  nodes {
+                    name
+                    owner { login }
+                    refs(refPrefix: "refs/heads/", first: $refsPageSize) {
+                      pageInfo { hasNextPage endCursor }
+                      nodes { name target { oid } }
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    private static final String BRANCHES_QUERY = """
+            query($owner: String!, $name: String!, $cursor: String, $refsPageSize: Int!) {
+              repository(owner: $owner, name: $name) {
+                refs(refPrefix: "refs/heads/", first: $refsPageSize, after: $cursor) {
+                  pageInfo { hasNextPage endCursor }
+                  nodes { name target { oid } }
+                }
+              }
+            }
+            """;
+
+    // When a RATE_LIMITED answer carries no reset time; GitHub's secondary limits back off a minute
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(60);
+
+    private final WebClient webClient;
+    private final UpstreamCallPolicy callPolicy;
+    private final String graphQlPath;
+    private final int pageSize;
+    private final int refsPageSize;
+    private final boolean partialResults;
+
+    public GitHubGraphQlServiceImpl(WebClient webClient,
+                                    UpstreamCallPolicy callPolicy,
+                                    @Value("${github.api.graphql.path:/graphql}") String graphQlPath,
+                                    @Value("${github.api.graphql.page-size:100}") int pageSize,
+                                    @Value("${github.api.graphql.refs-page-size:100}") int refsPageSize,
+                                    @Value("${github.api.partial-results:true}") boolean partialResults) {
+        this.webClient = webClient;
+        this.callPolicy = callPolicy;
+        this.graphQlPath = graphQlPath;
+        this.pageSize = pageSize;
+        this.refsPageSize = refsPageSize;
+        this.partialResults = partialResults;
+    }
+
+    /**
+     * GraphQL pagination is cursor based, so {@code page} is ignored and the whole account is
+     * always returned.
+     */
+    @Override
+    public Mono<List<Repository>> getUserRepositories(String username, int page, List<Repository> result) {
+        return streamUserRepositories(username).collect(Collectors.toList());
+    }
+
+    @Override
+    public Flux<Repository> streamUserRepositories(String username) {
+        return fetchRepositories(username, null)
+                .expand(repos -> repos.pageInfo().hasNextPage()
+                        ? fetchRepositories(username, repos.pageInfo().endCursor())
+                        : Mono.empty())
+                .flatMapIterable(Connection::nodes)
+                .concatMap(this::withRemainingBranches);
+    }
+
+    @Override
+    public Mono<List<Branch>> getBranches(String username, String repoName) {
+        return fetchRefs(username, repoName, null)
+                .expand(refs -> refs.pageInfo().hasNextPage()
+                        ? fetchRefs(username, repoName, refs.pageInfo().endCursor())
+                        : Mono.empty())
+                .flatMapIterable(Connection::nodes)
+                .map(RefNode::toBranch)
+                .collect(Collectors.toList())
+                // Same answer as the REST API's 404 for the branches of a missing repository
+                .onErrorMap(RepositoryGoneException.class, e -> new UserNotFoundException(username));
+    }
+
+    private Mono<Connection<RepositoryNode>> fetchRepositories(String username, String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("login", username);
+        variables.put("cursor", cursor);
+        variables.put("pageSize", pageSize);
+        variables.put("refsPageSize", refsPageSize);
+        log.debug("Fetching GraphQL repositories user={} cursor={}", username, cursor);
+
+        return execute(REPOSITORIES_QUERY, variables, RepositoriesResponse.class)
+                .flatMap(response -> {
+                    if (response.data() == null || response.data().repositoryOwner() == null) {
+                        return Mono.error(new UserNotFoundException(username));
+                    }
+                    return Mono.just(response.data().repositoryOwner().repositories());
+                });
+    }
+
+    /**
+     * Branches that did not fit into the repository query's first page of refs are fetched
+     * with follow-up per-repository queries; most repositories never need one. A repository
+     * deleted or renamed while its refs are paged is left out, as the next listing would.
+     * With {@code partialResults}, a follow-up that fails transiently returns the first page
+     * marked {@code partial}; rate limiting and an open circuit still fail the request.
+     */
+    private Mono<Repository> withRemainingBranches(RepositoryNode repo) {
+        List<Branch> firstPage = repo.refs().nodes().stream().map(RefNode::toBranch).toList();
+        if (!repo.refs().pageInfo().hasNextPage()) {
+            return Mono.just(new Repository(repo.name(), repo.owner().login(), firstPage));
+        }
+        Mono<Repository> repository = fetchRefs(repo.owner().login(), repo.name(), repo.refs().pageInfo().endCursor())
+                .expand(refs -> refs.pageInfo().hasNextPage()
+                        ? fetchRefs(repo.owner().login(), repo.name(), refs.pageInfo().endCursor())
+                        : Mono.empty())
+                .flatMapIterable(Connection::nodes)
+                .map(RefNode::toBranch)
+                .startWith(firstPage)
+                .collect(Collectors.toList())
+                .map(branches -> new Repository(repo.name(), repo.owner().login(), branches))
+                .onErrorResume(RepositoryGoneException.class, e -> {
+                    log.debug("Skipping {}/{}, gone while fetching its branches", repo.owner().login(), repo.name());
+                    return Mono.empty();
+                });
+        if (!partialResults) {
+            return repository;
+        }
+        return repository.onErrorResume(GitHubGraphQlServiceImpl::isBranchFailure,
+                e -> Mono.just(new Repository(repo.name(), repo.owner().login(), firstPage, true)));
+    }
+
+    static boolean isBranchFailure(Throwable error) {
+        return GitHubServiceImpl.isBranchFailure(error) || error instanceof GraphQlException;
+    }
+
+    private Mono<Connection<RefNode>> fetchRefs(String owner, String name, String cursor) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("owner", owner);
+        variables.put("name", name);
+        variables.put("cursor", cursor);
+        variables.put("refsPageSize", refsPageSize);
+        log.debug("Fetching GraphQL branches repository={}/{} cursor={}", owner, name, cursor);
+
+        return execute(BRANCHES_QUERY, variables, BranchesResponse.class)
+                .flatMap(response -> {
+                    if (response.data() == null || response.data().repository() == null) {
+                        return Mono.error(new RepositoryGoneException(owner, name));
+                    }
+                    return Mono.just(response.data().repository().refs());
+                });
+    }
+
+    private <T extends GraphQlResponse> Mono<T> execute(String query, Map<String, Object> variables, Class<T> type) {
+        return webClient.post()
+                .uri(graphQlPath)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("query", query, "variables", variables))
+                .retrieve()
+                .toEntity(type)
+                // Queries only read, so they are as safe to retry as GETs
+                .transform(callPolicy::apply)
+                .flatMap(entity -> {
+                    T response = entity.getBody();
+                    List<GraphQlError> errors = response == null ? null : response.errors();
+                    if (errors == null || errors.stream().allMatch(error -> "NOT_FOUND".equals(error.type()))) {
+                        return Mono.justOrEmpty(response);
+                    }
+                    // GitHub answers 200 with a RATE_LIMITED error once the GraphQL points run out
+                    if (errors.stream().anyMatch(error -> "RATE_LIMITED".equals(error.type()))) {
+                        return Mono.error(new RateLimitExceededException(untilReset(entity.getHeaders())));
+                    }
+                    return Mono.error(new GraphQlException(errors.get(0).message()));
+                });
+    }
+
+    private static Duration untilReset(HttpHeaders headers) {
+        String reset = headers.getFirst("X-RateLimit-Reset");
+        if (reset == null) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        try {
+            Duration untilReset = Duration.between(Instant.now(), Instant.ofEpochSecond(Long.parseLong(reset)));
+            // Round up so clients never retry before the window actually resets
+            return Duration.ofSeconds(Math.max(1, untilReset.plusMillis(999).toSeconds()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER;
+        }
+    }
+
+    /** A GraphQL error other than {@code NOT_FOUND} or {@code RATE_LIMITED}. */
+    static final class GraphQlException extends RuntimeException {
+
+        GraphQlException(String message) {
+            super("GitHub GraphQL error: " + message);
+        }
+    }
+
+    /** The repository whose refs were being paged no longer resolves. */
+    static final class RepositoryGoneException extends RuntimeException {
+
+        RepositoryGoneException(String owner, String name) {
+            super("Repository not found: " + owner + "/" + name);
+        }
+    }
+
+    interface GraphQlResponse {
+        List<GraphQlError> errors();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record GraphQlError(String type, String message) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoriesResponse(RepositoriesData data, List<GraphQlError> errors) implements GraphQlResponse {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoriesData(RepositoryOwner repositoryOwner) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryOwner(Connection<RepositoryNode> repositories) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BranchesResponse(BranchesData data, List<GraphQlError> errors) implements GraphQlResponse {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BranchesData(RepositoryRefs repository) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryRefs(Connection<RefNode> refs) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Connection<T>(PageInfo pageInfo, List<T> nodes) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PageInfo(boolean hasNextPage, String endCursor) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryNode(String name, Owner owner, Connection<RefNode> refs) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Owner(String login) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RefNode(String name, Target target) {
+        Branch toBranch() {
+            return new Branch(name, target == null ? null : target.oid());
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Target(String oid) {
+    }
+}
@@ -2,13 +2,39 @@ package com.example.githubapi.service;
 
 import com.example.githubapi.model.Branch;
 import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.RepositoryQuery;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface GitHubService {
     Mono<List<Repository>> getUserRepositories(String username, int page, List<Repository> result);
 
+    /**
+     * Emits each non-fork repository of the user as soon as its branches are known.
+     */
+    Flux<Repository> streamUserRepositories(String username);
+
     Mono<List<Branch>> getBranches(String username, String repoName);
 
+    /**
+     * The page of the user's non-fork repositories selected by {@code query}. By default the
+     * full list is loaded and the query applied to it; implementations may push it down so
+     * that branches are only fetched for what is returned.
+     */
+    default Mono<RepositoryPage> findUserRepositories(String username, RepositoryQuery query) {
+        return getUserRepositories(username, 1, new ArrayList<>()).map(query::apply);
+    }
+
+    /**
+     * Reloads the user's full repository list, given the {@code previous} result. Implementations
+     * may reuse what has not changed since; by default everything is fetched again.
+     */
+    default Mono<List<Repository>> refreshUserRepositories(String username, List<Repository> previous) {
+        return getUserRepositories(username, 1, new ArrayList<>());
+    }
+
 }
@@ -1,91 +1,330 @@
 package com.example.githubapi.service;
 
+import com.example.githubapi.client.UpstreamCallPolicy;
 import com.example.githubapi.exceptions.UserNotFoundException;
 import com.example.githubapi.model.Branch;
 import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.RepositoryQuery;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Service
+@ConditionalOnProperty(name = "github.api.mode", havingValue = "rest", matchIfMissing = true)
+@Qualifier("upstream")
 public class GitHubServiceImpl implements GitHubService {
 
+    private static final Logger log = LoggerFactory.getLogger(GitHubServiceImpl.class);
+
     private final WebClient webClient;
-    private static final String BASE_URL = "https://api.github.com/users/%s/repos";
+    private static final String REPOS_PATH = "/users/%s/repos";
+    private static final String BRANCHES_PATH = "/repos/%s/%s/branches";
     private static final int MAX_PAGES = 500;
+    private static final int DEFAULT_PER_PAGE = 100;
+    private static final int DEFAULT_PAGE_CONCURRENCY = 4;
+    private static final int DEFAULT_BRANCH_CONCURRENCY = 8;
+
+    private final UpstreamCallPolicy callPolicy;
+    private final int perPage;
+    private final int pageConcurrency;
+    private final int branchConcurrency;
+    private final boolean preserveOrder;
+    private final boolean partialResults;
+    private final boolean incrementalRefresh;
+    private final FetchMetrics metrics;
 
     public GitHubServiceImpl(WebClient webClient) {
+        this(webClient, UpstreamCallPolicy.defaults(), DEFAULT_PER_PAGE, DEFAULT_PAGE_CONCURRENCY,
+                DEFAULT_BRANCH_CONCURRENCY, false, true, true, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public GitHubServiceImpl(WebClient webClient,
+                             UpstreamCallPolicy callPolicy,
+                             @Value("${github.api.per-page:100}") int perPage,
+                             @Value("${github.api.page-concurrency:4}") int pageConcurrency,
+                             @Value("${github.api.branch-concurrency:8}") int branchConcurrency,
+                             @Value("${github.api.preserve-order:false}") boolean preserveOrder,
+                             @Value("${github.api.partial-results:true}") boolean partialResults,
+                             @Value("${github.api.incremental-refresh:true}") boolean incrementalRefresh,
+                             MeterRegistry meterRegistry) {
         this.webClient = webClient;
+        this.callPolicy = callPolicy;
+        this.perPage = perPage;
+        this.pageConcurrency = pageConcurrency;
+        this.branchConcurrency = branchConcurrency;
+        this.preserveOrder = preserveOrder;
+        this.partialResults = partialResults;
+        this.incrementalRefresh = incrementalRefresh;
+        this.metrics = new FetchMetrics(meterRegistry);
     }
 
     @Override
     public Mono<List<Repository>> getUserRepositories(String username, int page, List<Repository> result) {
-        String url = String.format(BASE_URL, username) + "?page=" + page;
-        System.out.println("Fetching URL: " + url);
-
-        return fetchPage(url)
-                .expand(repos -> {
-                    System.out.println("Fetched page: " + page + ", size: " + repos.size());
-                    if (repos.isEmpty() || page >= MAX_PAGES) {
-                        return Mono.empty();
-                    }
-                    return fetchPage(String.format(BASE_URL, username) + "?page=" + (page + 1));
+        return repositories(username, page)
+                .collect(Collectors.toList())
+                .onErrorResume(WebClientResponseException.class, e -> handleWebClientResponseException(e, username))
+                .transform(load -> metrics.timeUser("load", load));
+    }
+
+    @Override
+    public Flux<Repository> streamUserRepositories(String username) {
+        return repositories(username, 1)
+                .onErrorResume(WebClientResponseException.class,
+                        e -> this.<Repository>handleWebClientResponseException(e, username).flux())
+                .transform(load -> metrics.timeUser("stream", load));
+    }
+
+    /**
+     * Pushes the query down: the repository listing is fetched and filtered, sorted and paged
+     * first, and branches are only requested for the repositories on the page, or not at all
+     * without {@code includeBranches}.
+     */
+    @Override
+    public Mono<RepositoryPage> findUserRepositories(String username, RepositoryQuery query) {
+        return listRepositories(username, 1)
+                .collectList()
+                .flatMap(repos -> {
+                    RepositoryQuery.Slice<RepositoryResponse> slice = query.select(repos, RepositoryResponse::name);
+                    Flux<Repository> page = query.includeBranches()
+                            ? Flux.fromIterable(slice.items()).flatMapSequential(repo -> withBranches(username, repo), branchConcurrency)
+                            : Flux.fromIterable(slice.items()).map(repo -> Repository.summary(repo.name(), repo.owner().login()));
+                    return page.collectList().map(repositories -> new RepositoryPage(repositories, slice.nextCursor()));
                 })
-                .flatMapIterable(repos -> repos)
-                .filter(repo -> !Boolean.TRUE.equals(repo.get("fork")))
-                .flatMap(repo -> {
-                    String name = (String) repo.get("name");
-                    String ownerLogin = (String) ((Map) repo.get("owner")).get("login");
-
-                    return getBranches(username, name)
-                            .map(branches -> new Repository(name, ownerLogin, branches));
+                .onErrorResume(WebClientResponseException.class, e -> handleWebClientResponseException(e, username))
+                .transform(load -> metrics.timeUser("query", load));
+    }
+
+    /**
+     * Repository pages are always fetched again, but with {@code incrementalRefresh} branches
+     * are only requested for repositories whose {@code pushed_at}/{@code updated_at} moved
+     * since {@code previous}; the others keep their previous branches and commit SHAs.
+     */
+    @Override
+    public Mono<List<Repository>> refreshUserRepositories(String username, List<Repository> previous) {
+        if (!incrementalRefresh) {
+            return getUserRepositories(username, 1, new ArrayList<>());
+        }
+        Map<String, Repository> known = previous.stream()
+                .collect(Collectors.toMap(Repository::name, Function.identity(), (first, second) -> first));
+        return repositories(username, 1, repo -> {
+                    Repository cached = known.get(repo.name());
+                    if (cached != null && !cached.partial() && cached.changedAt() != null
+                            && cached.changedAt().equals(repo.changedAt())) {
+                        return Mono.just(cached);
+                    }
+                    return withBranches(username, repo);
                 })
                 .collect(Collectors.toList())
-                .onErrorResume(WebClientResponseException.class, e -> handleWebClientResponseException(e, username));
+                .onErrorResume(WebClientResponseException.class, e -> handleWebClientResponseException(e, username))
+                .transform(load -> metrics.timeUser("refresh", load));
+    }
+
+    private Flux<Repository> repositories(String username, int page) {
+        return repositories(username, page, repo -> withBranches(username, repo));
+    }
+
+    private Flux<Repository> repositories(String username, int page, Function<RepositoryResponse, Mono<Repository>> resolve) {
+        return listRepositories(username, page)
+                .transform(repos -> merge(repos, resolve, branchConcurrency));
+    }
+
+    /**
+     * The user's non-fork repositories as listed by GitHub, without branches.
+     */
+    private Flux<RepositoryResponse> listRepositories(String username, int page) {
+        return Flux.defer(() -> {
+            AtomicInteger pages = new AtomicInteger();
+            AtomicInteger repositories = new AtomicInteger();
+            return fetchAllPages(String.format(REPOS_PATH, username), page, RepositoryResponse[].class)
+                    .doOnNext(repos -> pages.incrementAndGet())
+                    .flatMapIterable(repos -> repos)
+                    .filter(repo -> !repo.fork())
+                    .doOnNext(repo -> repositories.incrementAndGet())
+                    .doOnComplete(() -> {
+                        metrics.recordListing(pages.get(), repositories.get());
+                        log.debug("Listed repositories user={} pages={} repositories={}",
+                                username, pages.get(), repositories.get());
+                    });
+        });
+    }
+
+    /**
+     * With {@code partialResults}, a repository whose branches cannot be fetched (after
+     * retries) is returned without them and marked {@code partial} instead of failing the
+     * whole response. That covers GitHub failing or rejecting this one call; a refusal from the
+     * rate-limit gate or the open circuit applies to every other call too, and fails the request
+     * with its {@code 429} or {@code 503}.
+     */
+    private Mono<Repository> withBranches(String username, RepositoryResponse repo) {
+        Mono<Repository> repository = getBranches(username, repo.name())
+                .map(branches -> new Repository(repo.name(), repo.owner().login(), branches, false, repo.changedAt()));
+        if (!partialResults) {
+            return repository;
+        }
+        return repository.onErrorResume(GitHubServiceImpl::isBranchFailure,
+                e -> Mono.just(Repository.withoutBranches(repo.name(), repo.owner().login())));
+    }
+
+    static boolean isBranchFailure(Throwable error) {
+        return UpstreamCallPolicy.isTransient(error) || error instanceof WebClientResponseException;
+    }
+
+    /**
+     * Runs {@code call} for every element with at most {@code concurrency} calls in flight.
+     * With {@code preserveOrder} the results keep GitHub's ordering ({@code flatMapSequential}),
+     * otherwise they are emitted as soon as they complete.
+     */
+    private <T, R> Flux<R> merge(Flux<T> source, Function<T, Mono<R>> call, int concurrency) {
+        if (preserveOrder) {
+            return source.flatMapSequential(call, concurrency);
+        }
+        return source.flatMap(call, concurrency);
+    }
+
+    /**
+     * Streams every page of a paginated GitHub listing, starting at {@code firstPage}.
+     * The first response's {@code Link} header decides how the rest is fetched: when
+     * {@code rel="last"} is known the remaining pages are requested in parallel (at most
+     * {@code pageConcurrency} at a time), otherwise
+     * {@code rel="next"} is followed one page at a time. No {@code Link} header means
+     * there is nothing more to fetch.
+     */
+    private <T> Flux<List<T>> fetchAllPages(String path, int firstPage, Class<T[]> type) {
+        return fetchPage(path, firstPage, type)
+                .flatMapMany(first -> {
+                    Flux<List<T>> head = Flux.just(first.items());
+                    PageLinks links = first.links();
+
+                    if (links.last() != null) {
+                        int last = Math.min(links.last(), MAX_PAGES);
+                        if (last <= firstPage) {
+                            return head;
+                        }
+                        Flux<List<T>> rest = merge(Flux.range(firstPage + 1, last - firstPage),
+                                page -> fetchPage(path, page, type), pageConcurrency)
+                                .map(Page::items);
+                        return head.concatWith(rest);
+                    }
+
+                    return Mono.just(first)
+                            .expand(page -> {
+                                Integer next = page.links().next();
+                                if (next == null || next > MAX_PAGES) {
+                                    return Mono.empty();
+                                }
+                                return fetchPage(path, next, type);
+                            })
+                            .map(Page::items);
+                });
     }
 
-    private Mono<List<Map>> fetchPage(String url) {
-        System.out.println("Fetching URL: " + url);
+    private <T> Mono<Page<T>> fetchPage(String path, int page, Class<T[]> type) {
+        String url = path + "?per_page=" + perPage + "&page=" + page;
+        log.debug("Fetching page url={}", url);
 
         return webClient.get()
                 .uri(url)
                 .header("Accept", "application/json")
                 .retrieve()
-                .bodyToMono(Map[].class)
-                .map(Arrays::asList);
+                .toEntity(type)
+                .transform(callPolicy::apply)
+                .map(this::toPage);
+    }
+
+    private <T> Page<T> toPage(ResponseEntity<T[]> response) {
+        T[] body = response.getBody();
+        List<T> items = body == null ? List.of() : Arrays.asList(body);
+        PageLinks links = PageLinks.parse(response.getHeaders().get(HttpHeaders.LINK));
+        log.debug("Fetched page items={} next={} last={}", items.size(), links.next(), links.last());
+        return new Page<>(items, links);
     }
 
     @Override
     public Mono<List<Branch>> getBranches(String username, String repoName) {
-        String url = String.format("https://api.github.com/repos/%s/%s/branches", username, repoName);
-        System.out.println("Fetching branches URL: " + url);
+        String path = String.format(BRANCHES_PATH, username, repoName);
+        log.debug("Fetching branches path={}", path);
 
-        return webClient.get()
-                .uri(url)
-                .header("Accept", "application/json")
-                .retrieve()
-                .bodyToFlux(Map.class)
-                .map(branchMap -> {
-                    String name = (String) branchMap.get("name");
-                    Map commitMap = (Map) branchMap.get("commit");
-                    String lastCommitSha = (String) commitMap.get("sha");
-                    return new Branch(name, lastCommitSha);
-                })
-                .collect(Collectors.toList());
+        return fetchAllPages(path, 1, BranchResponse[].class)
+                .flatMapIterable(branches -> branches)
+                .map(BranchResponse::toBranch)
+                .collect(Collectors.toList())
+                .transform(metrics::timeBranches);
     }
 
-    protected Mono<List<Repository>> handleWebClientResponseException(WebClientResponseException e, String username) {
+    protected <T> Mono<T> handleWebClientResponseException(WebClientResponseException e, String username) {
         if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
             return Mono.error(new UserNotFoundException(username));
         }
         return Mono.error(e);
     }
-}
\ No newline at end of file
+
+    private record Page<T>(List<T> items, PageLinks links) {
+    }
+
+    /*
+     * GitHub's repository objects carry around a hundred fields, including nested owner and
+     * license objects. Decoding into these records keeps only what we read; Jackson skips the
+     * rest at token level instead of building a Map for every object.
+     */
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryResponse(String name, boolean fork, OwnerResponse owner,
+                              @JsonProperty("pushed_at") String pushedAt,
+                              @JsonProperty("updated_at") String updatedAt) {
+
+        /**
+         * Latest of {@code pushed_at} (any push, including new or deleted branches) and
+         * {@code updated_at} (repository settings such as a renamed default branch).
+         */
+        Instant changedAt() {
+            Instant pushed = pushedAt == null ? null : Instant.parse(pushedAt);
+            Instant updated = updatedAt == null ? null : Instant.parse(updatedAt);
+            if (pushed == null || updated == null) {
+                return pushed == null ? updated : pushed;
+            }
+            return pushed.isAfter(updated) ? pushed : updated;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record OwnerResponse(String login) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BranchResponse(String name, CommitResponse commit) {
+        Branch toBranch() {
+            return new Branch(name, commit == null ? null : commit.sha());
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record CommitResponse(String sha) {
+    }
+}
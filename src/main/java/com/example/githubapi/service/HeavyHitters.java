@@ -0,0 +1,190 @@
+package com.example.githubapi.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Approximate request counts per username in bounded memory (the Space-Saving algorithm).
+ * At most {@code capacity} usernames are tracked; an unseen username replaces the one with the
+ * lowest count and inherits that count, so a frequent username is never missed although its
+ * count may be overestimated by at most the count of the name it replaced.
+ * <p>
+ * Counters are kept in a Stream-Summary: a list of buckets in ascending count order, each
+ * holding the counters with that count. Recording a request moves one counter to the
+ * neighbouring bucket and evicting takes any counter from the first, so both are constant time
+ * however many usernames are tracked.
+ * <p>
+ * {@link #decay()} halves every count, so the ranking follows what is popular now rather than
+ * what was popular since startup.
+ */
+final class HeavyHitters {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    // Lowest and highest count
+    private Bucket first;
+    private Bucket last;
+
+    HeavyHitters(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    synchronized void record(String username) {
+        String key = username.toLowerCase(Locale.ROOT);
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            increment(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, username);
+            counters.put(key, counter);
+            Bucket bucket = first != null && first.count == 1 ? first : insertAfter(null, 1);
+            bucket.add(counter);
+            return;
+        }
+        // Take over a counter with the lowest count, keeping its count
+        counter = first.head;
+        counters.remove(counter.key);
+        counter.key = key;
+        counter.username = username;
+        counters.put(key, counter);
+        increment(counter);
+    }
+
+    /**
+     * Up to {@code k} usernames, most requested first, as they were first seen.
+     */
+    synchronized List<String> top(int k) {
+        List<String> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (Bucket bucket = last; bucket != null && top.size() < k; bucket = bucket.previous) {
+            for (Counter counter = bucket.head; counter != null && top.size() < k; counter = counter.next) {
+                top.add(counter.username);
+            }
+        }
+        return top;
+    }
+
+    synchronized void decay() {
+        // Halving keeps the order of the buckets; neighbours that end up with the same count merge
+        Bucket bucket = first;
+        first = null;
+        last = null;
+        while (bucket != null) {
+            Bucket next = bucket.next;
+            long halved = bucket.count >> 1;
+            for (Counter counter = bucket.head; counter != null; ) {
+                Counter following = counter.next;
+                counter.previous = null;
+                counter.next = null;
+                if (halved == 0) {
+                    counters.remove(counter.key);
+                } else {
+                    Bucket target = last != null && last.count == halved ? last : insertAfter(last, halved);
+                    target.add(counter);
+                }
+                counter = following;
+            }
+            bucket = next;
+        }
+    }
+
+    synchronized int size() {
+        return counters.size();
+    }
+
+    private void increment(Counter counter) {
+        Bucket bucket = counter.bucket;
+        long count = bucket.count + 1;
+        Bucket target = bucket.next != null && bucket.next.count == count ? bucket.next : insertAfter(bucket, count);
+        bucket.remove(counter);
+        if (bucket.head == null) {
+            unlink(bucket);
+        }
+        target.add(counter);
+    }
+
+    /** A new empty bucket right after {@code previous}, or first when it is {@code null}. */
+    private Bucket insertAfter(Bucket previous, long count) {
+        Bucket bucket = new Bucket(count);
+        bucket.previous = previous;
+        bucket.next = previous == null ? first : previous.next;
+        if (bucket.next != null) {
+            bucket.next.previous = bucket;
+        } else {
+            last = bucket;
+        }
+        if (previous != null) {
+            previous.next = bucket;
+        } else {
+            first = bucket;
+        }
+        return bucket;
+    }
+
+    private void unlink(Bucket bucket) {
+        if (bucket.previous != null) {
+            bucket.previous.next = bucket.next;
+        } else {
+            first = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.previous = bucket.previous;
+        } else {
+            last = bucket.previous;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final long count;
+        private Bucket previous;
+        private Bucket next;
+        private Counter head;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void add(Counter counter) {
+            counter.bucket = this;
+            counter.previous = null;
+            counter.next = head;
+            if (head != null) {
+                head.previous = counter;
+            }
+            head = counter;
+        }
+
+        private void remove(Counter counter) {
+            if (counter.previous != null) {
+                counter.previous.next = counter.next;
+            } else {
+                head = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.previous = counter.previous;
+            }
+            counter.previous = null;
+            counter.next = null;
+        }
+    }
+
+    private static final class Counter {
+
+        private String key;
+        private String username;
+        private Bucket bucket;
+        private Counter previous;
+        private Counter next;
+
+        private Counter(String key, String username) {
+            this.key = key;
+            this.username = username;
+        }
+    }
+}
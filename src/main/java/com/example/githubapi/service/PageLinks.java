@@ -0,0 +1,44 @@
+package com.example.githubapi.service;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Page numbers advertised by GitHub's {@code Link} response header, e.g.
+ * {@code <https://api.github.com/user/1/repos?page=2>; rel="next", <...?page=10>; rel="last"}.
+ * A {@code null} component means the relation was not present.
+ */
+record PageLinks(Integer next, Integer last) {
+
+    static final PageLinks NONE = new PageLinks(null, null);
+
+    private static final Pattern LINK = Pattern.compile("<([^>]*)>\\s*;\\s*rel=\"([^\"]+)\"");
+    private static final Pattern PAGE_PARAM = Pattern.compile("[?&]page=(\\d+)");
+
+    static PageLinks parse(List<String> headerValues) {
+        if (headerValues == null || headerValues.isEmpty()) {
+            return NONE;
+        }
+        Integer next = null;
+        Integer last = null;
+        for (String value : headerValues) {
+            Matcher link = LINK.matcher(value);
+            while (link.find()) {
+                Integer page = pageOf(link.group(1));
+                switch (link.group(2)) {
+                    case "next" -> next = page;
+                    case "last" -> last = page;
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new PageLinks(next, last);
+    }
+
+    private static Integer pageOf(String url) {
+        Matcher page = PAGE_PARAM.matcher(url);
+        return page.find() ? Integer.valueOf(page.group(1)) : null;
+    }
+}
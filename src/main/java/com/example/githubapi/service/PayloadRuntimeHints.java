@@ -0,0 +1,32 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.UserBatchRequest;
+import com.example.githubapi.model.UserRepositories;
+import com.example.githubapi.model.WebhookResult;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection hints for a native image: every record Jackson reads from GitHub or webhooks, or
+ * writes in our responses. They are registered here rather than with
+ * {@code @RegisterReflectionForBinding} on the services, because only the beans enabled at build
+ * time are processed, and the REST, GraphQL and webhook services are switched on by properties.
+ */
+public class PayloadRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingHints.registerReflectionHints(hints.reflection(),
+                Repository.class, Branch.class, RepositoryPage.class, UserRepositories.class,
+                UserBatchRequest.class, WebhookResult.class,
+                GitHubServiceImpl.RepositoryResponse.class, GitHubServiceImpl.BranchResponse.class,
+                GitHubGraphQlServiceImpl.RepositoriesResponse.class, GitHubGraphQlServiceImpl.BranchesResponse.class,
+                WebhookService.WebhookPayload.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.client.GitHubTokenPool;
+import com.example.githubapi.exceptions.UserNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the most requested users warm. Requests seen by the {@link CachingGitHubService} are
+ * counted in a bounded {@link HeavyHitters} sketch, and every {@code interval} the top
+ * {@code top-k} users whose entry would go stale before the next run are reloaded in the
+ * background, so their requests are answered from a fresh cache without waiting on GitHub.
+ * <p>
+ * The prefetcher stays within a budget: at most {@code max-refreshes} reloads per run,
+ * {@code concurrency} at a time, and no further reload once fewer than {@code min-remaining}
+ * requests are left in the rate limit, checked before each one since a single reload of a user
+ * with many repositories can take a large share of the budget. A run stops at the first failed reload, other than for
+ * a user that does not exist.
+ */
+@Component
+@ConditionalOnProperty(name = "github.prefetch.enabled", havingValue = "true")
+public class PrefetchScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefetchScheduler.class);
+
+    private final CachingGitHubService cachingGitHubService;
+    private final GitHubTokenPool tokenPool;
+    private final HeavyHitters heavyHitters;
+    private final Duration interval;
+    private final int topK;
+    private final int maxRefreshes;
+    private final int concurrency;
+    private final int minRemaining;
+
+    private final Counter refreshed;
+    private final Counter failed;
+    private final Disposable schedule;
+
+    @Autowired
+    public PrefetchScheduler(CachingGitHubService cachingGitHubService,
+                             ObjectProvider<GitHubTokenPool> tokenPool,
+                             @Value("${github.prefetch.interval:4m}") Duration interval,
+                             @Value("${github.prefetch.top-k:50}") int topK,
+                             @Value("${github.prefetch.tracked-users:1000}") int trackedUsers,
+                             @Value("${github.prefetch.max-refreshes:50}") int maxRefreshes,
+                             @Value("${github.prefetch.concurrency:2}") int concurrency,
+                             @Value("${github.prefetch.min-remaining:1000}") int minRemaining,
+                             MeterRegistry meterRegistry) {
+        this(cachingGitHubService, tokenPool.getIfAvailable(), interval, topK, trackedUsers, maxRefreshes,
+                concurrency, minRemaining, meterRegistry, true);
+    }
+
+    PrefetchScheduler(CachingGitHubService cachingGitHubService, GitHubTokenPool tokenPool, Duration interval,
+                      int topK, int trackedUsers, int maxRefreshes, int concurrency, int minRemaining,
+                      MeterRegistry meterRegistry, boolean scheduled) {
+        this.cachingGitHubService = cachingGitHubService;
+        this.tokenPool = tokenPool;
+        this.heavyHitters = new HeavyHitters(trackedUsers);
+        this.interval = interval;
+        this.topK = topK;
+        this.maxRefreshes = maxRefreshes;
+        this.concurrency = concurrency;
+        this.minRemaining = minRemaining;
+        this.refreshed = Counter.builder("github.prefetch.refreshed")
+                .description("Users reloaded ahead of time by the prefetcher")
+                .register(meterRegistry);
+        this.failed = Counter.builder("github.prefetch.failed")
+                .description("Prefetch runs stopped by a failed reload")
+                .register(meterRegistry);
+        Gauge.builder("github.prefetch.tracked", heavyHitters, HeavyHitters::size)
+                .description("Usernames tracked by the request frequency sketch")
+                .register(meterRegistry);
+
+        cachingGitHubService.addRequestListener(heavyHitters::record);
+        this.schedule = scheduled
+                ? Flux.interval(interval, interval)
+                        // A run that overlaps the next tick skips it instead of queueing another
+                        .onBackpressureDrop()
+                        .concatMap(tick -> run(), 0)
+                        .subscribe()
+                : null;
+    }
+
+    /**
+     * One prefetch run; completes with the number of users reloaded.
+     */
+    Mono<Integer> run() {
+        return Mono.defer(() -> {
+            List<String> hottest = heavyHitters.top(topK);
+            heavyHitters.decay();
+            AtomicInteger reloaded = new AtomicInteger();
+            return Flux.fromIterable(hottest)
+                    .filter(username -> cachingGitHubService.refreshDueWithin(username, interval))
+                    // Pulled one user at a time as reloads finish, so the budget is read before each
+                    .takeWhile(username -> hasBudget())
+                    .take(maxRefreshes)
+                    .flatMap(username -> cachingGitHubService.refresh(username)
+                            .doOnSuccess(done -> {
+                                reloaded.incrementAndGet();
+                                refreshed.increment();
+                            })
+                            // A popular name that does not exist is not a reason to stop the run
+                            .onErrorResume(UserNotFoundException.class, e -> Mono.empty()), concurrency)
+                    .then(Mono.fromSupplier(reloaded::get))
+                    .onErrorResume(e -> {
+                        failed.increment();
+                        log.warn("Prefetch run stopped after reloaded={}: {}", reloaded.get(), e.getMessage());
+                        return Mono.just(reloaded.get());
+                    });
+        });
+    }
+
+    private boolean hasBudget() {
+        return tokenPool == null || tokenPool.availableBudget() >= minRemaining;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.exceptions.InvalidRequestException;
+import com.example.githubapi.exceptions.InvalidWebhookSignatureException;
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.WebhookResult;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps cached results current from GitHub webhooks instead of waiting for them to expire.
+ * Deliveries must carry an {@code X-Hub-Signature-256} HMAC of the body made with
+ * {@code github.webhook.secret}.
+ * <ul>
+ *     <li>{@code push} to a branch sets its {@code lastCommitSha}, or removes it when the branch
+ *     was deleted</li>
+ *     <li>{@code create} and {@code delete} of a branch add or remove it</li>
+ *     <li>{@code repository} {@code created}, {@code publicized}, {@code deleted},
+ *     {@code privatized}, {@code renamed} and {@code transferred} add, remove or rename the
+ *     repository</li>
+ *     <li>{@code fork} creates a fork, which is never listed, so it changes nothing</li>
+ * </ul>
+ * Where the payload does not say enough, such as the head of a new branch, or a push whose
+ * {@code before} does not match the cached commit (a missed or reordered delivery), only that
+ * repository's branches are fetched again. If that fails the user's entry is dropped.
+ */
+@Service
+@ConditionalOnProperty(name = "github.webhook.enabled", havingValue = "true")
+public class WebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookService.class);
+
+    static final String UPDATED = "updated";
+    static final String INVALIDATED = "invalidated";
+    static final String NOT_CACHED = "not-cached";
+    static final String IGNORED = "ignored";
+
+    private static final String BRANCH_REF_PREFIX = "refs/heads/";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    private final CachingGitHubService cachingGitHubService;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec secret;
+    private final MeterRegistry meterRegistry;
+
+    public WebhookService(CachingGitHubService cachingGitHubService,
+                          ObjectMapper objectMapper,
+                          @Value("${github.webhook.secret:}") String secret,
+                          MeterRegistry meterRegistry) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("github.webhook.secret must be set when github.webhook.enabled=true");
+        }
+        this.cachingGitHubService = cachingGitHubService;
+        this.objectMapper = objectMapper;
+        this.secret = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Mono<WebhookResult> handle(String event, String signature, byte[] body) {
+        return Mono.defer(() -> {
+            verify(signature, body);
+            WebhookPayload payload = parse(body);
+            Mono<String> outcome = switch (event) {
+                case "push" -> onPush(payload);
+                case "create" -> onCreate(payload);
+                case "delete" -> onDelete(payload);
+                case "repository" -> onRepository(payload);
+                default -> Mono.just(IGNORED);
+            };
+            return outcome.map(result -> {
+                log.debug("Webhook event={} repository={} outcome={}", event, describe(payload), result);
+                counter(event, result).increment();
+                return new WebhookResult(event, result);
+            });
+        });
+    }
+
+    void verify(String signature, byte[] body) {
+        if (signature == null || !signature.startsWith(SIGNATURE_PREFIX)) {
+            throw new InvalidWebhookSignatureException("Missing X-Hub-Signature-256 header");
+        }
+        byte[] expected;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secret);
+            expected = mac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+        byte[] actual;
+        try {
+            actual = HexFormat.of().parseHex(signature.substring(SIGNATURE_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidWebhookSignatureException("Malformed X-Hub-Signature-256 header");
+        }
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new InvalidWebhookSignatureException("Webhook signature does not match");
+        }
+    }
+
+    private Mono<String> onPush(WebhookPayload payload) {
+        if (payload.ref() == null || !payload.ref().startsWith(BRANCH_REF_PREFIX) || !payload.hasRepository()
+                || payload.after() == null) {
+            return Mono.just(IGNORED);
+        }
+        String branch = payload.ref().substring(BRANCH_REF_PREFIX.length());
+        String owner = payload.repository().ownerLogin();
+        String name = payload.repository().name();
+        if (payload.deleted()) {
+            return Mono.just(patch(owner, name, branches -> withoutBranch(branches, branch)));
+        }
+
+        Optional<Repository> cached = cachedRepository(owner, name);
+        if (cached.isEmpty()) {
+            return cachingGitHubService.cachedRepositories(owner).isPresent()
+                    ? onRepositoryAdded(payload.repository())
+                    : Mono.just(notCached(owner));
+        }
+        String current = cached.get().branches().stream()
+                .filter(b -> b.name().equals(branch))
+                .map(Branch::lastCommitSha)
+                .findFirst()
+                .orElse(null);
+        boolean inOrder = current == null ? payload.created() : current.equals(payload.before());
+        if (!inOrder && !payload.after().equals(current)) {
+            return refetchBranches(owner, name);
+        }
+        return Mono.just(patch(owner, name, branches -> withBranch(branches, new Branch(branch, payload.after()))));
+    }
+
+    /**
+     * A {@code create} event does not carry the new branch's head. A push that created it has
+     * usually been delivered already; otherwise the repository's branches are fetched again.
+     */
+    private Mono<String> onCreate(WebhookPayload payload) {
+        if (!"branch".equals(payload.refType()) || !payload.hasRepository()) {
+            return Mono.just(IGNORED);
+        }
+        String owner = payload.repository().ownerLogin();
+        String name = payload.repository().name();
+        Optional<Repository> cached = cachedRepository(owner, name);
+        if (cached.isEmpty()) {
+            return Mono.just(cachingGitHubService.cachedRepositories(owner).isPresent() ? IGNORED : notCached(owner));
+        }
+        if (cached.get().branches().stream().anyMatch(b -> b.name().equals(payload.ref()))) {
+            return Mono.just(UPDATED);
+        }
+        return refetchBranches(owner, name);
+    }
+
+    private Mono<String> onDelete(WebhookPayload payload) {
+        if (!"branch".equals(payload.refType()) || !payload.hasRepository()) {
+            return Mono.just(IGNORED);
+        }
+        return Mono.just(patch(payload.repository().ownerLogin(), payload.repository().name(),
+                branches -> withoutBranch(branches, payload.ref())));
+    }
+
+    private Mono<String> onRepository(WebhookPayload payload) {
+        RepositoryPayload repository = payload.repository();
+        if (!payload.hasRepository() || payload.action() == null) {
+            return Mono.just(IGNORED);
+        }
+        return switch (payload.action()) {
+            case "created", "publicized" -> onRepositoryAdded(repository);
+            case "deleted", "privatized" -> Mono.just(removeRepository(repository.ownerLogin(), repository.name()));
+            case "renamed" -> {
+                String from = payload.changes() == null ? null : payload.changes().previousName();
+                yield Mono.just(from == null
+                        ? invalidate(repository.ownerLogin())
+                        : renameRepository(repository.ownerLogin(), from, repository.name()));
+            }
+            case "transferred" -> {
+                String previousOwner = payload.changes() == null ? null : payload.changes().previousOwner();
+                if (previousOwner != null) {
+                    removeRepository(previousOwner, repository.name());
+                }
+                yield onRepositoryAdded(repository);
+            }
+            default -> Mono.just(IGNORED);
+        };
+    }
+
+    private Mono<String> onRepositoryAdded(RepositoryPayload repository) {
+        String owner = repository.ownerLogin();
+        if (repository.fork() || repository.isPrivate()) {
+            return Mono.just(IGNORED);
+        }
+        if (cachingGitHubService.cachedRepositories(owner).isEmpty()) {
+            return Mono.just(notCached(owner));
+        }
+        return cachingGitHubService.getBranches(owner, repository.name())
+                .map(branches -> update(owner, repositories -> {
+                    List<Repository> changed = new ArrayList<>(repositories);
+                    changed.removeIf(r -> r.name().equals(repository.name()));
+                    changed.add(new Repository(repository.name(), owner, branches));
+                    return changed;
+                }))
+                .onErrorResume(e -> Mono.just(failed(owner, e)));
+    }
+
+    private Mono<String> refetchBranches(String owner, String name) {
+        return cachingGitHubService.getBranches(owner, name)
+                .map(branches -> patch(owner, name, current -> branches))
+                .onErrorResume(e -> Mono.just(failed(owner, e)));
+    }
+
+    private String patch(String owner, String name, UnaryOperator<List<Branch>> change) {
+        return update(owner, repositories -> repositories.stream()
+                .map(r -> r.name().equals(name) && r.branches() != null
+                        ? new Repository(r.name(), r.ownerLogin(), List.copyOf(change.apply(r.branches())), r.partial(),
+                                r.changedAt())
+                        : r)
+                .toList());
+    }
+
+    private String removeRepository(String owner, String name) {
+        return update(owner, repositories -> repositories.stream()
+                .filter(r -> !r.name().equals(name))
+                .toList());
+    }
+
+    private String renameRepository(String owner, String from, String to) {
+        return update(owner, repositories -> repositories.stream()
+                .map(r -> r.name().equals(from)
+                        ? new Repository(to, r.ownerLogin(), r.branches(), r.partial(), r.changedAt())
+                        : r)
+                .toList());
+    }
+
+    private String update(String owner, UnaryOperator<List<Repository>> change) {
+        return cachingGitHubService.update(owner, change) ? UPDATED : NOT_CACHED;
+    }
+
+    private String notCached(String owner) {
+        // Drops a snapshot on disk that would otherwise be served after a restart
+        cachingGitHubService.update(owner, repositories -> repositories);
+        return NOT_CACHED;
+    }
+
+    private String invalidate(String owner) {
+        cachingGitHubService.invalidate(owner);
+        return INVALIDATED;
+    }
+
+    private String failed(String owner, Throwable error) {
+        log.warn("Webhook update failed, dropping cached user={}: {}", owner, error.toString());
+        return invalidate(owner);
+    }
+
+    private Optional<Repository> cachedRepository(String owner, String name) {
+        return cachingGitHubService.cachedRepositories(owner)
+                .flatMap(repositories -> repositories.stream()
+                        .filter(r -> r.name().equals(name) && r.branches() != null)
+                        .findFirst());
+    }
+
+    private static List<Branch> withBranch(List<Branch> branches, Branch branch) {
+        List<Branch> changed = new ArrayList<>(withoutBranch(branches, branch.name()));
+        int index = indexOf(branches, branch.name());
+        changed.add(index < 0 ? changed.size() : index, branch);
+        return changed;
+    }
+
+    private static List<Branch> withoutBranch(List<Branch> branches, String name) {
+        return branches.stream().filter(b -> !b.name().equals(name)).toList();
+    }
+
+    private static int indexOf(List<Branch> branches, String name) {
+        for (int i = 0; i < branches.size(); i++) {
+            if (branches.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private WebhookPayload parse(byte[] body) {
+        try {
+            return objectMapper.readValue(body, WebhookPayload.class);
+        } catch (IOException e) {
+            throw new InvalidRequestException("Malformed webhook payload");
+        }
+    }
+
+    private static String describe(WebhookPayload payload) {
+        RepositoryPayload repository = payload.repository();
+        return repository == null ? null : repository.ownerLogin() + "/" + repository.name();
+    }
+
+    private Counter counter(String event, String outcome) {
+        return Counter.builder("github.webhook.events")
+                .description("Webhook deliveries by event and what they did to the cache")
+                .tag("event", event)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /*
+     * Only the fields read from push, create, delete and repository events; the rest of each
+     * payload is skipped.
+     */
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record WebhookPayload(String action, String ref, @JsonProperty("ref_type") String refType,
+                          String before, String after, boolean created, boolean deleted,
+                          RepositoryPayload repository, Changes changes) {
+        boolean hasRepository() {
+            return repository != null && repository.name() != null && repository.ownerLogin() != null;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryPayload(String name, boolean fork, @JsonProperty("private") boolean isPrivate, Account owner) {
+        String ownerLogin() {
+            return owner == null ? null : owner.login();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Account(String login) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Changes(RepositoryChange repository, OwnerChange owner) {
+        String previousName() {
+            return repository == null || repository.name() == null ? null : repository.name().from();
+        }
+
+        String previousOwner() {
+            if (owner == null || owner.from() == null) {
+                return null;
+            }
+            Account from = owner.from().user() != null ? owner.from().user() : owner.from().organization();
+            return from == null ? null : from.login();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record RepositoryChange(NameChange name) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record NameChange(String from) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record OwnerChange(PreviousOwner from) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PreviousOwner(Account user, Account organization) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.githubapi.store;
+
+import com.example.githubapi.model.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A user's repositories as last loaded from GitHub, and when.
+ */
+public record Snapshot(String username, Instant savedAt, List<Repository> repositories) {
+}
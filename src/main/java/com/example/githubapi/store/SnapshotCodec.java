@@ -0,0 +1,179 @@
+package com.example.githubapi.store;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Binary encoding of a user's repositories for the {@link SnapshotStore} log.
+ * <pre>
+ * snapshot   = username:utf savedAt:int64(epoch millis) count:varint repository*
+ * repository = flags:byte name:utf [changedAt:int64(epoch millis)] [owner:utf] branchCount:varint branch*
+ * branch     = name:utf shaKind:byte [sha]
+ * removal    = username:utf removedAt:int64(epoch millis)
+ * </pre>
+ * The owner is omitted when it is the username itself (flag {@code 0x02}), and 40-character
+ * hex commit SHAs are stored as their 20 raw bytes, which together roughly halve the size of
+ * the JSON form. {@code changedAt} is present when flag {@code 0x04} is set.
+ */
+final class SnapshotCodec {
+
+    private static final int PARTIAL = 0x01;
+    private static final int OWNED_BY_USER = 0x02;
+    private static final int HAS_CHANGED_AT = 0x04;
+
+    private static final byte NO_SHA = 0;
+    private static final byte BINARY_SHA = 1;
+    private static final byte TEXT_SHA = 2;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private SnapshotCodec() {
+    }
+
+    static byte[] encode(Snapshot snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(snapshot.username());
+            out.writeLong(snapshot.savedAt().toEpochMilli());
+            writeVarInt(out, snapshot.repositories().size());
+            for (Repository repository : snapshot.repositories()) {
+                boolean ownedByUser = snapshot.username().equals(repository.ownerLogin());
+                out.writeByte((repository.partial() ? PARTIAL : 0)
+                        | (ownedByUser ? OWNED_BY_USER : 0)
+                        | (repository.changedAt() != null ? HAS_CHANGED_AT : 0));
+                out.writeUTF(repository.name());
+                if (repository.changedAt() != null) {
+                    out.writeLong(repository.changedAt().toEpochMilli());
+                }
+                if (!ownedByUser) {
+                    out.writeUTF(repository.ownerLogin());
+                }
+                writeVarInt(out, repository.branches().size());
+                for (Branch branch : repository.branches()) {
+                    out.writeUTF(branch.name());
+                    writeSha(out, branch.lastCommitSha());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] encodeRemoval(String username, Instant removedAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(username);
+            out.writeLong(removedAt.toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads only the username and timestamp every payload starts with, which is all the
+     * index needs when the log is scanned at startup.
+     */
+    static Key decodeKey(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new Key(in.readUTF(), Instant.ofEpochMilli(in.readLong()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Snapshot decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String username = in.readUTF();
+            Instant savedAt = Instant.ofEpochMilli(in.readLong());
+            int count = readVarInt(in);
+            List<Repository> repositories = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int flags = in.readUnsignedByte();
+                String name = in.readUTF();
+                Instant changedAt = (flags & HAS_CHANGED_AT) != 0 ? Instant.ofEpochMilli(in.readLong()) : null;
+                String owner = (flags & OWNED_BY_USER) != 0 ? username : in.readUTF();
+                int branchCount = readVarInt(in);
+                List<Branch> branches = new ArrayList<>(branchCount);
+                for (int j = 0; j < branchCount; j++) {
+                    branches.add(new Branch(in.readUTF(), readSha(in)));
+                }
+                repositories.add(new Repository(name, owner, List.copyOf(branches), (flags & PARTIAL) != 0, changedAt));
+            }
+            return new Snapshot(username, savedAt, List.copyOf(repositories));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record Key(String username, Instant savedAt) {
+    }
+
+    private static void writeSha(DataOutputStream out, String sha) throws IOException {
+        if (sha == null) {
+            out.writeByte(NO_SHA);
+        } else if (sha.length() == 40 && isLowerHex(sha)) {
+            out.writeByte(BINARY_SHA);
+            out.write(HEX.parseHex(sha));
+        } else {
+            out.writeByte(TEXT_SHA);
+            out.writeUTF(sha);
+        }
+    }
+
+    private static String readSha(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        return switch (kind) {
+            case NO_SHA -> null;
+            case BINARY_SHA -> {
+                byte[] sha = new byte[20];
+                in.readFully(sha);
+                yield HEX.formatHex(sha);
+            }
+            case TEXT_SHA -> in.readUTF();
+            default -> throw new IOException("Unknown SHA encoding " + kind);
+        };
+    }
+
+    private static boolean isLowerHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
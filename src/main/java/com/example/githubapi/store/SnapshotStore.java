@@ -0,0 +1,291 @@
+package com.example.githubapi.store;
+
+import com.example.githubapi.model.Repository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of per-user {@link Snapshot}s on local disk, so a restarted instance can
+ * answer from the last known data instead of reloading every user from GitHub at once.
+ * <p>
+ * Each record is {@code length:int32 crc32:int32 type:byte payload} with the payload in the
+ * {@link SnapshotCodec} format. Only an in-memory index of offsets is kept; opening the store
+ * scans the log once to rebuild it, and a torn record at the end (from a crash mid-write) is
+ * truncated. Superseded records are dropped by rewriting the log once it is more than twice
+ * the size of the live data. Snapshots older than {@code maxAge} are ignored.
+ * <p>
+ * All methods block on file I/O and must not be called on an event-loop thread.
+ */
+@Component
+@ConditionalOnProperty(name = "github.snapshot.enabled", havingValue = "true")
+public class SnapshotStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final int HEADER_BYTES = 9;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+    private final Path path;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // Reads share the channel; appends and compaction (which swaps the file) are exclusive
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+
+    @Autowired
+    public SnapshotStore(@Value("${github.snapshot.path:data/snapshots.log}") Path path,
+                         @Value("${github.snapshot.max-age:24h}") Duration maxAge,
+                         MeterRegistry meterRegistry) throws IOException {
+        this(path, maxAge, Clock.systemUTC());
+        Gauge.builder("github.snapshot.entries", index, Map::size)
+                .description("Users with a snapshot on disk")
+                .register(meterRegistry);
+        Gauge.builder("github.snapshot.file.size", this, store -> store.size)
+                .description("Size of the snapshot log in bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    SnapshotStore(Path path, Duration maxAge, Clock clock) throws IOException {
+        this.path = path;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        long started = System.nanoTime();
+        this.channel = open(path);
+        loadIndex();
+        log.info("Loaded snapshots entries={} path={} durationMs={}", index.size(), path,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    /**
+     * The user's snapshot, unless there is none or it is older than {@code maxAge}.
+     */
+    public Optional<Snapshot> get(String username) {
+        Entry entry = index.get(username);
+        if (entry == null || isExpired(entry)) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            // Re-read under the lock: compaction may have moved the record
+            Entry current = index.get(username);
+            if (current == null) {
+                return Optional.empty();
+            }
+            byte[] payload = readPayload(current.offset(), current.length());
+            return Optional.of(SnapshotCodec.decode(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String username) {
+        Entry entry = index.get(username);
+        return entry != null && !isExpired(entry);
+    }
+
+    public void put(String username, List<Repository> repositories) {
+        Instant now = clock.instant();
+        append(username, PUT, SnapshotCodec.encode(new Snapshot(username, now, repositories)), now);
+    }
+
+    public void remove(String username) {
+        if (index.containsKey(username)) {
+            append(username, REMOVE, SnapshotCodec.encodeRemoval(username, clock.instant()), null);
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            channel.truncate(0);
+            size = 0;
+            liveBytes = 0;
+            index.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String username, byte type, byte[] payload, Instant savedAt) {
+        ByteBuffer record = record(type, payload);
+        lock.writeLock().lock();
+        try {
+            long offset = size;
+            while (record.hasRemaining()) {
+                channel.write(record, offset + record.position());
+            }
+            size += record.limit();
+
+            Entry previous = savedAt == null
+                    ? index.remove(username)
+                    : index.put(username, new Entry(offset, record.limit(), savedAt));
+            liveBytes += (savedAt == null ? 0 : record.limit()) - (previous == null ? 0 : previous.length());
+
+            if (size > MIN_COMPACTION_BYTES && size > 2 * liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live records into a new file and atomically replaces the log with it.
+     * Called with the write lock held.
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        long offset = 0;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Entry> live : index.entrySet()) {
+                Entry entry = live.getValue();
+                ByteBuffer record = ByteBuffer.allocate(entry.length());
+                readFully(record, entry.offset());
+                record.flip();
+                while (record.hasRemaining()) {
+                    target.write(record, offset + record.position());
+                }
+                live.setValue(new Entry(offset, entry.length(), entry.savedAt()));
+                offset += entry.length();
+            }
+            target.force(false);
+        }
+        channel.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(path);
+        size = offset;
+        liveBytes = offset;
+    }
+
+    private void loadIndex() throws IOException {
+        long offset = 0;
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= fileSize) {
+            header.clear();
+            readFully(header, offset);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            byte type = header.get();
+            if (length < 0 || offset + HEADER_BYTES + length > fileSize) {
+                break;
+            }
+            byte[] payload = readPayload(offset, HEADER_BYTES + length);
+            if (checksum(type, payload) != crc || (type != PUT && type != REMOVE)) {
+                break;
+            }
+
+            SnapshotCodec.Key key = SnapshotCodec.decodeKey(payload);
+            int recordLength = HEADER_BYTES + length;
+            Entry previous = type == PUT
+                    ? index.put(key.username(), new Entry(offset, recordLength, key.savedAt()))
+                    : index.remove(key.username());
+            liveBytes += (type == PUT ? recordLength : 0) - (previous == null ? 0 : previous.length());
+            offset += recordLength;
+        }
+        if (offset < fileSize) {
+            log.warn("Truncating unreadable snapshot log tail bytes={} path={}", fileSize - offset, path);
+            channel.truncate(offset);
+        }
+        size = offset;
+    }
+
+    private byte[] readPayload(long offset, int recordLength) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(recordLength - HEADER_BYTES);
+        readFully(payload, offset + HEADER_BYTES);
+        return payload.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return entry.savedAt().plus(maxAge).isBefore(clock.instant());
+    }
+
+    private static ByteBuffer record(byte type, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt(checksum(type, payload));
+        record.put(type);
+        record.put(payload);
+        return record.flip();
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private record Entry(long offset, int length, Instant savedAt) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.githubapi;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Holds many client requests open at once while every upstream call is slow, and checks they
+ * are served concurrently rather than queued behind a fixed pool of request threads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"github.cache.enabled=false", "github.api.http.max-connections=100"})
+public class ConcurrentRequestsLoadTest {
+
+    private static final int CLIENTS = 100;
+    private static final int UPSTREAM_DELAY_MILLIS = 3000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @RegisterExtension
+    static WireMockExtension wireMockServer = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig()
+                    .dynamicPort()
+                    .containerThreads(CLIENTS + 16)
+                    .asynchronousResponseEnabled(true)
+                    .asynchronousResponseThreads(CLIENTS))
+            .build();
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", wireMockServer::baseUrl);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        WireMock.configureFor("localhost", wireMockServer.getPort());
+        wireMockServer.resetAll();
+    }
+
+    @Test
+    public void testSlowUpstreamCallsAreServedConcurrently() throws Exception {
+        stubFor(get(urlPathMatching("/users/[a-z0-9]+/repos"))
+                .willReturn(aResponse()
+                        .withFixedDelay(UPSTREAM_DELAY_MILLIS)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+
+        // Unpooled client connections, so the test client itself does not cap concurrency
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.newConnection())))
+                .build();
+        // Warm up the request path once so the measurement is not dominated by class loading
+        client.get().uri("/api/github/user/warmup/repositories").retrieve().toBodilessEntity().block();
+        long deadline = System.nanoTime() + Duration.ofMillis(UPSTREAM_DELAY_MILLIS).toNanos();
+
+        CompletableFuture<List<Integer>> statuses = Flux.range(0, CLIENTS)
+                .flatMap(i -> client.get()
+                        .uri("/api/github/user/loaduser{i}/repositories", i)
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value())),
+                        CLIENTS)
+                .collectList()
+                .toFuture();
+
+        // No upstream call can complete before the deadline, so every call seen by then was in flight at once.
+        // Queued behind a 16-connection pool, at most 16 would be.
+        int inFlight = 0;
+        while (inFlight < CLIENTS && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            inFlight = wireMockServer.countRequestsMatching(
+                    getRequestedFor(urlPathMatching("/users/loaduser[0-9]+/repos")).build()).getCount();
+        }
+        assertEquals(CLIENTS, inFlight);
+
+        List<Integer> completed = statuses.get(60, TimeUnit.SECONDS);
+        assertEquals(CLIENTS, completed.size());
+        assertTrue(completed.stream().allMatch(status -> status == 200), "statuses: " + completed);
+
+        // Other cached test contexts register their own "github" pools, so look for this one among them
+        List<Double> maxConnections = meterRegistry.find("reactor.netty.connection.provider.max.connections")
+                .tag("name", "github")
+                .gauges().stream()
+                .map(Gauge::value)
+                .toList();
+        assertTrue(maxConnections.contains((double) CLIENTS), "max connections: " + maxConnections);
+        assertNotNull(meterRegistry.find("reactor.netty.connection.provider.pending.connections").tag("name", "github").gauge());
+    }
+}
@@ -2,6 +2,12 @@ package com.example.githubapi;
 
 import com.example.githubapi.model.Branch;
 import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.UserBatchRequest;
+import com.example.githubapi.model.UserRepositories;
+import com.example.githubapi.service.CachingGitHubService;
+import com.example.githubapi.service.GitHubService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
@@ -9,33 +15,71 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.junit.jupiter.api.Assertions.*;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"github.webhook.enabled=true", "github.webhook.secret=" + GitHubApiIntegrationTest.WEBHOOK_SECRET,
+                "github.webhook.max-payload-size=1MB"})
+@AutoConfigureObservability
 public class GitHubApiIntegrationTest {
 
+    static final String WEBHOOK_SECRET = "webhook-secret";
+
     @LocalServerPort
     private int port;
 
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private CachingGitHubService cachingGitHubService;
+
+    @Autowired
+    @Qualifier("upstream")
+    private GitHubService upstreamGitHubService;
+
     @RegisterExtension
     static WireMockExtension wireMockServer = WireMockExtension.newInstance()
             .options(WireMockConfiguration.wireMockConfig().dynamicPort())
             .build();
 
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", wireMockServer::baseUrl);
+    }
+
     @BeforeEach
     public void setUp() {
         WireMock.configureFor("localhost", wireMockServer.getPort());
         wireMockServer.resetAll();
+        cachingGitHubService.invalidateAll();
     }
 
     @Test
@@ -174,4 +218,656 @@ public class GitHubApiIntegrationTest {
                     assertNull(branch.lastCommitSha());
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSinglePageWithoutLinkHeaderIsFetchedOnce() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class).hasSize(1);
+
+        verify(1, getRequestedFor(urlPathEqualTo("/users/testuser/repos"))
+                .withQueryParam("per_page", equalTo("100"))
+                .withQueryParam("page", equalTo("1")));
+        verify(1, getRequestedFor(urlPathEqualTo("/users/testuser/repos")));
+    }
+
+    @Test
+    public void testAllPagesFetchedExactlyOnceWhenLastPageIsKnown() {
+        String reposUrl = wireMockServer.baseUrl() + "/user/1/repos?per_page=100&page=";
+        stubRepositoryPage(1, "<" + reposUrl + "2>; rel=\"next\", <" + reposUrl + "3>; rel=\"last\"", "repo1");
+        stubRepositoryPage(2, "<" + reposUrl + "3>; rel=\"next\", <" + reposUrl + "3>; rel=\"last\"", "repo2");
+        stubRepositoryPage(3, "<" + reposUrl + "1>; rel=\"first\", <" + reposUrl + "2>; rel=\"prev\"", "repo3");
+        stubFor(get(urlPathMatching("/repos/testuser/repo[0-9]+/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(3, repositories.size());
+                });
+
+        verify(3, getRequestedFor(urlPathEqualTo("/users/testuser/repos")));
+        for (int page = 1; page <= 3; page++) {
+            verify(1, getRequestedFor(urlPathEqualTo("/users/testuser/repos"))
+                    .withQueryParam("page", equalTo(String.valueOf(page))));
+        }
+    }
+
+    @Test
+    public void testNextLinksFollowedWhenLastPageIsUnknown() {
+        String reposUrl = wireMockServer.baseUrl() + "/user/1/repos?per_page=100&page=";
+        stubRepositoryPage(1, "<" + reposUrl + "2>; rel=\"next\"", "repo1");
+        stubRepositoryPage(2, "<" + reposUrl + "1>; rel=\"prev\"", "repo2");
+        stubFor(get(urlPathMatching("/repos/testuser/repo[0-9]+/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class).hasSize(2);
+
+        verify(2, getRequestedFor(urlPathEqualTo("/users/testuser/repos")));
+    }
+
+    @Test
+    public void testBranchesFollowLinkPagination() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        String branchesUrl = wireMockServer.baseUrl() + "/repositories/1/branches?per_page=100&page=";
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .withQueryParam("page", equalTo("1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Link", "<" + branchesUrl + "2>; rel=\"next\", <" + branchesUrl + "2>; rel=\"last\"")
+                        .withBody("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .withQueryParam("page", equalTo("2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"develop\", \"commit\": {\"sha\": \"def456\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(1, repositories.size());
+                    assertEquals(2, repositories.get(0).branches().size());
+                });
+
+        verify(2, getRequestedFor(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .withQueryParam("per_page", equalTo("100")));
+    }
+
+    @Test
+    public void testUnchangedResponsesAreRevalidatedWithEtag() {
+        stubFor(get(urlPathEqualTo("/users/etaguser/repos"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "\"repos-v1\"")
+                        .withBody("[{\"name\": \"repo1\", \"owner\": {\"login\": \"etaguser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/users/etaguser/repos"))
+                .withHeader("If-None-Match", equalTo("\"repos-v1\""))
+                .willReturn(aResponse().withStatus(304)));
+        stubFor(get(urlPathEqualTo("/repos/etaguser/repo1/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("ETag", "\"branches-v1\"")
+                        .withBody("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+        stubFor(get(urlPathEqualTo("/repos/etaguser/repo1/branches"))
+                .withHeader("If-None-Match", equalTo("\"branches-v1\""))
+                .willReturn(aResponse().withStatus(304)));
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get()
+                    .uri("http://localhost:" + port + "/api/github/user/etaguser/repositories")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Repository.class)
+                    .consumeWith(response -> {
+                        List<Repository> repositories = response.getResponseBody();
+                        assertNotNull(repositories);
+                        assertEquals(1, repositories.size());
+                        assertEquals("abc123", repositories.get(0).branches().get(0).lastCommitSha());
+                    });
+            cachingGitHubService.invalidate("etaguser");
+        }
+
+        verify(1, getRequestedFor(urlPathEqualTo("/users/etaguser/repos"))
+                .withHeader("If-None-Match", equalTo("\"repos-v1\"")));
+        verify(1, getRequestedFor(urlPathEqualTo("/repos/etaguser/repo1/branches"))
+                .withHeader("If-None-Match", equalTo("\"branches-v1\"")));
+    }
+
+    @Test
+    public void testStreamUserRepositoriesAsNdjson() {
+        String reposUrl = wireMockServer.baseUrl() + "/user/1/repos?per_page=100&page=";
+        stubRepositoryPage(1, "<" + reposUrl + "2>; rel=\"next\", <" + reposUrl + "2>; rel=\"last\"", "repo1");
+        stubRepositoryPage(2, "<" + reposUrl + "1>; rel=\"prev\"", "repo2");
+        stubFor(get(urlPathMatching("/repos/testuser/repo[0-9]+/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(2, repositories.size());
+                    assertTrue(repositories.stream().allMatch(repository -> repository.branches().size() == 1));
+                });
+    }
+
+    @Test
+    public void testStreamUserRepositoriesAsServerSentEvents() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectBody(String.class)
+                .value(body -> assertTrue(body.startsWith("data:{\"name\":\"repo1\"")));
+    }
+
+    @Test
+    public void testStreamUserNotFound() {
+        stubFor(get(urlPathEqualTo("/users/nonexistentuser/repos"))
+                .willReturn(aResponse().withStatus(404)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/nonexistentuser/repositories")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.message").isEqualTo("User not found: nonexistentuser");
+    }
+
+    @Test
+    public void testUpstreamRateLimitReturnsTooManyRequests() {
+        // Secondary rate limit: no quota headers, only Retry-After
+        stubFor(get(urlPathEqualTo("/users/busyuser/repos"))
+                .willReturn(aResponse()
+                        .withStatus(403)
+                        .withHeader("Retry-After", "30")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/busyuser/repositories")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "30")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(429);
+    }
+
+    @Test
+    public void testTransientBranchFailureIsRetried() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        // The first branch call fails with 503, the retry succeeds
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .inScenario("flaky").whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .inScenario("flaky").whenScenarioStateIs("recovered")
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].branches[0].name").isEqualTo("main")
+                .jsonPath("$[0].partial").doesNotExist();
+
+        verify(2, getRequestedFor(urlPathEqualTo("/repos/testuser/repo1/branches")));
+    }
+
+    @Test
+    public void testFailingBranchesReturnPartialRepository() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false},"
+                        + " {\"name\": \"repo2\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(aResponse().withStatus(500)));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo2/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(2, repositories.size());
+
+                    Repository failed = repositories.stream().filter(repo -> repo.name().equals("repo1")).findFirst().orElseThrow();
+                    assertTrue(failed.partial());
+                    assertTrue(failed.branches().isEmpty());
+
+                    Repository complete = repositories.stream().filter(repo -> repo.name().equals("repo2")).findFirst().orElseThrow();
+                    assertFalse(complete.partial());
+                    assertEquals(1, complete.branches().size());
+                });
+
+        // One call plus two retries
+        verify(3, getRequestedFor(urlPathEqualTo("/repos/testuser/repo1/branches")));
+    }
+
+    @Test
+    public void testRefreshFetchesBranchesOnlyForChangedRepositories() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[" + repositoryJson("repo1", "2024-05-01T10:00:00Z") + ", "
+                        + repositoryJson("repo2", "2024-05-01T10:00:00Z") + "]")));
+        stubFor(get(urlPathMatching("/repos/testuser/repo[12]/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+        List<Repository> previous = upstreamGitHubService.getUserRepositories("testuser", 1, new ArrayList<>()).block();
+        assertNotNull(previous);
+
+        // repo2 was pushed to since the previous load
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[" + repositoryJson("repo1", "2024-05-01T10:00:00Z") + ", "
+                        + repositoryJson("repo2", "2024-06-01T09:30:00Z") + "]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo2/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"def456\"}}]")));
+
+        List<Repository> refreshed = upstreamGitHubService.refreshUserRepositories("testuser", previous).block();
+
+        assertNotNull(refreshed);
+        Repository unchanged = refreshed.stream().filter(repo -> repo.name().equals("repo1")).findFirst().orElseThrow();
+        Repository changed = refreshed.stream().filter(repo -> repo.name().equals("repo2")).findFirst().orElseThrow();
+        assertEquals("abc123", unchanged.branches().get(0).lastCommitSha());
+        assertEquals("def456", changed.branches().get(0).lastCommitSha());
+        verify(1, getRequestedFor(urlPathEqualTo("/repos/testuser/repo1/branches")));
+        verify(2, getRequestedFor(urlPathEqualTo("/repos/testuser/repo2/branches")));
+    }
+
+    @Test
+    public void testBatchReturnsResultOrErrorPerDistinctUser() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+        stubFor(get(urlPathEqualTo("/users/ghost/repos"))
+                .willReturn(aResponse().withStatus(404)));
+
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/users/repositories")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"usernames\": [\"testuser\", \"ghost\", \"TestUser\"]}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserRepositories.class)
+                .consumeWith(response -> {
+                    List<UserRepositories> results = response.getResponseBody();
+                    assertNotNull(results);
+                    assertEquals(2, results.size());
+
+                    UserRepositories found = results.stream().filter(result -> result.username().equals("testuser")).findFirst().orElseThrow();
+                    assertEquals(200, found.status());
+                    assertEquals("main", found.repositories().get(0).branches().get(0).name());
+
+                    UserRepositories missing = results.stream().filter(result -> result.username().equals("ghost")).findFirst().orElseThrow();
+                    assertEquals(404, missing.status());
+                    assertEquals("User not found: ghost", missing.message());
+                    assertNull(missing.repositories());
+                });
+
+        verify(1, getRequestedFor(urlPathEqualTo("/users/testuser/repos")));
+    }
+
+    @Test
+    public void testBatchRejectsEmptyUsernameList() {
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/users/repositories")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"usernames\": []}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400);
+    }
+
+    @Test
+    public void testBatchRejectsMoreUsernamesThanTheLimit() {
+        List<String> usernames = Collections.nCopies(101, "testuser");
+
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/users/repositories")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserBatchRequest(usernames))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("At most 100 usernames per request");
+
+        verify(0, getRequestedFor(urlPathEqualTo("/users/testuser/repos")));
+    }
+
+    @Test
+    public void testNamesOnlyPageSkipsBranchCalls() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[" +
+                        "{\"name\": \"beta\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}," +
+                        "{\"name\": \"Alpine\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}," +
+                        "{\"name\": \"alps\", \"owner\": {\"login\": \"testuser\"}, \"fork\": true}," +
+                        "{\"name\": \"alpha\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+
+        String next = webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories?fields=name&prefix=AL&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("alpha")
+                .jsonPath("$[0].branches").doesNotExist()
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst("Link");
+        assertNotNull(next);
+        String nextUrl = next.substring(next.indexOf('<') + 1, next.indexOf('>'));
+
+        webTestClient.get()
+                .uri(nextUrl)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("Link")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Alpine");
+
+        verify(0, getRequestedFor(urlPathMatching("/repos/.*")));
+    }
+
+    @Test
+    public void testLimitFetchesBranchesOnlyForReturnedRepositories() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[" +
+                        "{\"name\": \"repo2\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}," +
+                        "{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("Link")
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("repo1")
+                .jsonPath("$[0].branches[0].lastCommitSha").isEqualTo("abc123");
+
+        verify(1, getRequestedFor(urlPathEqualTo("/repos/testuser/repo1/branches")));
+        verify(0, getRequestedFor(urlPathEqualTo("/repos/testuser/repo2/branches")));
+    }
+
+    @Test
+    public void testUnknownFieldIsRejected() {
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories?fields=name,stars")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Unknown field: stars; supported fields are name, branches");
+    }
+
+    @Test
+    public void testBlankFieldsIsTreatedAsAbsent() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories?fields=")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("repo1")
+                .jsonPath("$[0].branches[0].lastCommitSha").isEqualTo("abc123");
+    }
+
+    @Test
+    public void testFanOutStagesArePublishedToPrometheus() {
+        stubFor(get(urlPathEqualTo("/users/metricsuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"metricsuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/metricsuser/repo1/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/metricsuser/repositories")
+                .exchange()
+                .expectStatus().isOk();
+
+        String metrics = webTestClient.get()
+                .uri("http://localhost:" + port + "/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(metrics);
+        assertTrue(metrics.contains("github_upstream_requests_seconds_count{resource=\"repos\",status=\"200\"}"));
+        assertTrue(metrics.contains("github_upstream_requests_seconds_count{resource=\"branches\",status=\"200\"}"));
+        assertTrue(metrics.contains("github_fetch_user_seconds_count{operation=\"load\",outcome=\"success\"}"));
+        assertTrue(metrics.contains("github_fetch_pages_count"));
+        assertTrue(metrics.contains("github_fetch_branches_seconds_count"));
+        assertTrue(metrics.contains("http_server_requests_seconds_count"));
+    }
+
+    @Test
+    public void testSignedPushWebhookPatchesTheCachedBranch() throws Exception {
+        stubFor(get(urlPathEqualTo("/users/octocat/repos"))
+                .willReturn(okJson("[{\"name\": \"Hello-World\", \"owner\": {\"login\": \"octocat\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/octocat/Hello-World/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"6113728f27ae82c7b1a177c8d03f9e96e0adf246\"}}]")));
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/octocat/repositories")
+                .exchange()
+                .expectStatus().isOk();
+
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/webhooks/push.json")) {
+            body = in.readAllBytes();
+        }
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(WEBHOOK_SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/webhooks")
+                .header("X-GitHub-Event", "push")
+                .header("X-Hub-Signature-256", "sha256=" + "0".repeat(64))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/webhooks")
+                .header("X-GitHub-Event", "push")
+                .header("X-Hub-Signature-256", signature)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.outcome").isEqualTo("updated");
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/octocat/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].branches[0].lastCommitSha").isEqualTo("7fd1a60b01f91b314f59955a4e4d4e80d8edf11d");
+
+        // Both answered from the cache: the webhook did not cost a call to GitHub
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo("/repos/octocat/Hello-World/branches")));
+    }
+
+    @Test
+    public void testOversizedWebhookIsRejectedWith413() {
+        byte[] body = new byte[1024 * 1024 + 1];
+
+        webTestClient.post()
+                .uri("http://localhost:" + port + "/api/github/webhooks")
+                .header("X-GitHub-Event", "push")
+                .header("X-Hub-Signature-256", "sha256=" + "0".repeat(64))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isEqualTo(413)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(413);
+    }
+
+    @Test
+    public void testUnchangedRepositoriesAreRevalidatedWith304() {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(okJson("[{\"name\": \"main\", \"commit\": {\"sha\": \"abc123\"}}]")));
+
+        String etag = webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueMatches("Cache-Control", ".*no-cache.*")
+                .expectHeader().valueMatches("Vary", ".*Accept.*")
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+        assertNotNull(etag);
+        // Shared by the gzip and identity bodies, so it must not be a strong tag
+        assertTrue(etag.startsWith("W/\""), etag);
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+
+        // Compared weakly, so a cache that dropped the W/ prefix still revalidates
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .header("If-None-Match", etag.substring(2))
+                .exchange()
+                .expectStatus().isNotModified();
+
+        cachingGitHubService.update("testuser", repositories -> List.of(
+                new Repository("repo1", "testuser", List.of(new Branch("main", "def456")))));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].branches[0].lastCommitSha").isEqualTo("def456");
+    }
+
+    @Test
+    public void testRepositoriesInCborAndGzip() throws Exception {
+        StringBuilder branches = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            branches.append(i == 0 ? "" : ",")
+                    .append("{\"name\": \"branch-").append(i).append("\", \"commit\": {\"sha\": \"")
+                    .append(String.format("%040x", i)).append("\"}}");
+        }
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .willReturn(okJson("[{\"name\": \"repo1\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+        stubFor(get(urlPathEqualTo("/repos/testuser/repo1/branches"))
+                .willReturn(okJson(branches.append("]").toString())));
+
+        byte[] cbor = webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueMatches("ETag", "W/\".*\\.cbor\"")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        Repository[] decoded = new CBORMapper().readValue(cbor, Repository[].class);
+        assertEquals(1, decoded.length);
+        assertEquals(50, decoded[0].branches().size());
+        assertEquals(String.format("%040x", 49), decoded[0].branches().get(49).lastCommitSha());
+
+        // WebTestClient decodes gzip transparently, so ask with a client that shows the raw response
+        HttpResponse<byte[]> gzipped = HttpClient.newHttpClient().send(HttpRequest
+                        .newBuilder(URI.create("http://localhost:" + port + "/api/github/user/testuser/repositories"))
+                        .header("Accept-Encoding", "gzip")
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(Optional.of("gzip"), gzipped.headers().firstValue("Content-Encoding"));
+        assertTrue(gzipped.headers().firstValue("ETag").orElseThrow().startsWith("W/\""));
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertEquals(50, new ObjectMapper().readValue(json, Repository[].class)[0].branches().size());
+        }
+    }
+
+    private static String repositoryJson(String name, String pushedAt) {
+        return "{\"name\": \"" + name + "\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false, "
+                + "\"pushed_at\": \"" + pushedAt + "\", \"updated_at\": \"2024-01-01T00:00:00Z\"}";
+    }
+
+    private void stubRepositoryPage(int page, String link, String repoName) {
+        stubFor(get(urlPathEqualTo("/users/testuser/repos"))
+                .withQueryParam("page", equalTo(String.valueOf(page)))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader("Link", link)
+                        .withBody("[{\"name\": \"" + repoName + "\", \"owner\": {\"login\": \"testuser\"}, \"fork\": false}]")));
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.githubapi;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.service.CachingGitHubService;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"github.api.mode=graphql", "github.api.token=test-token"})
+public class GitHubGraphQlIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private CachingGitHubService cachingGitHubService;
+
+    @RegisterExtension
+    static WireMockExtension wireMockServer = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort())
+            .build();
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", wireMockServer::baseUrl);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        WireMock.configureFor("localhost", wireMockServer.getPort());
+        wireMockServer.resetAll();
+        cachingGitHubService.invalidateAll();
+    }
+
+    @Test
+    public void testRepositoriesAndBranchesInOneCall() {
+        // Mock GitHub GraphQL response with two repositories and their branches
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withHeader("Authorization", equalTo("Bearer test-token"))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("testuser")))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": {"repositories": {
+                          "pageInfo": {"hasNextPage": false, "endCursor": "c1"},
+                          "nodes": [
+                            {"name": "repo1", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": false, "endCursor": null},
+                              "nodes": [{"name": "main", "target": {"oid": "abc123"}}]}},
+                            {"name": "repo2", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": false, "endCursor": null},
+                              "nodes": []}}
+                          ]}}}}
+                        """)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(2, repositories.size());
+
+                    Repository repository = repositories.get(0);
+                    assertEquals("repo1", repository.name());
+                    assertEquals("testuser", repository.ownerLogin());
+                    assertEquals(List.of(new Branch("main", "abc123")), repository.branches());
+                    assertTrue(repositories.get(1).branches().isEmpty());
+                });
+
+        // The REST implementation would need 1 repository page plus 2 branch calls
+        verify(1, postRequestedFor(urlPathEqualTo("/graphql")));
+        verify(0, getRequestedFor(anyUrl()));
+    }
+
+    @Test
+    public void testOnlyPublicRepositoriesAreRequested() {
+        // The token can see the owner's private repositories; REST /users/{user}/repos never lists them
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.query", containing("privacy: PUBLIC")))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": {"repositories": {
+                          "pageInfo": {"hasNextPage": false, "endCursor": "c1"},
+                          "nodes": [
+                            {"name": "public-repo", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": false, "endCursor": null},
+                              "nodes": []}}
+                          ]}}}}
+                        """)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("public-repo")
+                .jsonPath("$.length()").isEqualTo(1);
+
+        verify(1, postRequestedFor(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.query", containing("privacy: PUBLIC"))));
+    }
+
+    @Test
+    public void testRepositoryPagesAndOverflowingRefsFollowCursors() {
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("testuser")))
+                .withRequestBody(matchingJsonPath("$.variables.cursor", absent()))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": {"repositories": {
+                          "pageInfo": {"hasNextPage": true, "endCursor": "page1"},
+                          "nodes": [
+                            {"name": "repo1", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": true, "endCursor": "refs1"},
+                              "nodes": [{"name": "main", "target": {"oid": "abc123"}}]}}
+                          ]}}}}
+                        """)));
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.variables.cursor", equalTo("page1")))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": {"repositories": {
+                          "pageInfo": {"hasNextPage": false, "endCursor": "page2"},
+                          "nodes": [
+                            {"name": "repo2", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": false, "endCursor": null},
+                              "nodes": [{"name": "main", "target": {"oid": "def456"}}]}}
+                          ]}}}}
+                        """)));
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.variables.name", equalTo("repo1")))
+                .withRequestBody(matchingJsonPath("$.variables.cursor", equalTo("refs1")))
+                .willReturn(okJson("""
+                        {"data": {"repository": {"refs": {
+                          "pageInfo": {"hasNextPage": false, "endCursor": "refs2"},
+                          "nodes": [{"name": "develop", "target": {"oid": "fed321"}}]}}}}
+                        """)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(2, repositories.size());
+                    assertEquals(List.of(new Branch("main", "abc123"), new Branch("develop", "fed321")),
+                            repositories.get(0).branches());
+                });
+
+        verify(3, postRequestedFor(urlPathEqualTo("/graphql")));
+    }
+
+    @Test
+    public void testRepositoryDeletedWhileFollowingRefsIsSkipped() {
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.variables.login", equalTo("testuser")))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": {"repositories": {
+                          "pageInfo": {"hasNextPage": false, "endCursor": "page1"},
+                          "nodes": [
+                            {"name": "repo1", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": true, "endCursor": "refs1"},
+                              "nodes": [{"name": "main", "target": {"oid": "abc123"}}]}},
+                            {"name": "repo2", "owner": {"login": "testuser"}, "refs": {
+                              "pageInfo": {"hasNextPage": false, "endCursor": null},
+                              "nodes": [{"name": "main", "target": {"oid": "def456"}}]}}
+                          ]}}}}
+                        """)));
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .withRequestBody(matchingJsonPath("$.variables.name", equalTo("repo1")))
+                .willReturn(okJson("""
+                        {"data": {"repository": null},
+                         "errors": [{"type": "NOT_FOUND", "message": "Could not resolve to a Repository"}]}
+                        """)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Repository.class)
+                .consumeWith(response -> {
+                    List<Repository> repositories = response.getResponseBody();
+                    assertNotNull(repositories);
+                    assertEquals(List.of("repo2"), repositories.stream().map(Repository::name).toList());
+                });
+    }
+
+    @Test
+    public void testRateLimitedQueryReturnsTooManyRequests() {
+        long reset = Instant.now().plusSeconds(120).getEpochSecond();
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .willReturn(okJson("""
+                        {"errors": [{"type": "RATE_LIMITED", "message": "API rate limit exceeded"}]}
+                        """).withHeader("X-RateLimit-Reset", String.valueOf(reset))));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/testuser/repositories")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().value("Retry-After", retryAfter ->
+                        assertTrue(Long.parseLong(retryAfter) > 100 && Long.parseLong(retryAfter) <= 121))
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(429);
+    }
+
+    @Test
+    public void testUserNotFound() {
+        stubFor(post(urlPathEqualTo("/graphql"))
+                .willReturn(okJson("""
+                        {"data": {"repositoryOwner": null},
+                         "errors": [{"type": "NOT_FOUND", "message": "Could not resolve to a RepositoryOwner"}]}
+                        """)));
+
+        webTestClient.get()
+                .uri("http://localhost:" + port + "/api/github/user/nonexistentuser/repositories")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.message").isEqualTo("User not found: nonexistentuser");
+    }
+}
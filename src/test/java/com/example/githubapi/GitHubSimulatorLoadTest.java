@@ -0,0 +1,200 @@
+package com.example.githubapi;
+
+import com.example.githubapi.stub.GitHubStub;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load against the real controller and service stack, with a {@link GitHubStub}
+ * simulating GitHub: log-normal latencies per endpoint, a small rate of {@code 502}s, rate-limit
+ * headers and paged listings. {@code clients} concurrent clients request users with a skewed
+ * popularity (so the cache sees both hits and misses) for {@code duration} after a warmup, and
+ * the run fails when sustained throughput, tail latency, error rate or the live heap cross
+ * their thresholds.
+ * <p>
+ * Tagged {@code load} and excluded from the default build; run it with
+ * {@code mvn -P load test}. Every knob is a system property, e.g. a one-hour soak:
+ * {@code mvn -P load test -Dload.duration=1h -Dload.clients=64}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"github.cache.ttl=30s", "github.cache.stale-while-revalidate=30s"})
+public class GitHubSimulatorLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    private static final int USERS = Integer.getInteger("load.users", 200);
+    private static final Duration WARMUP = Duration.parse("PT" + System.getProperty("load.warmup", "10s"));
+    private static final Duration DURATION = Duration.parse("PT" + System.getProperty("load.duration", "20s"));
+
+    private static final double MIN_RPS = Double.parseDouble(System.getProperty("load.min-rps", "20"));
+    private static final long MAX_P99_MILLIS = Long.getLong("load.max-p99-ms", 5_000);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+    private static final long MAX_LIVE_HEAP_MB = Long.getLong("load.max-live-heap-mb", 256);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final GitHubStub stub = GitHubStub.start(GitHubStub.Settings.defaults()
+            .withRepositories(40, 4)
+            .withLatency(new GitHubStub.Latency(Duration.ofMillis(40), Duration.ofMillis(250)),
+                    new GitHubStub.Latency(Duration.ofMillis(20), Duration.ofMillis(150)))
+            .withErrorRate(0.005)
+            .withRateLimit(1_000_000, Duration.ofHours(1)));
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    public void testSustainedLoadStaysWithinThresholds() {
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(
+                        ConnectionProvider.builder("load-clients").maxConnections(CLIENTS).build())))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+
+        run(client, WARMUP, null);
+
+        Outcomes outcomes = new Outcomes(new Recorder(3), new ConcurrentHashMap<>(), new LongAdder(), new LongAdder());
+        resetPeakHeap();
+        long started = System.nanoTime();
+        long upstreamBefore = stub.requests();
+        run(client, DURATION, outcomes);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        // Latencies are those of answered requests; requests without an answer are counted apart
+        Histogram latencies = outcomes.latencies().getIntervalHistogram();
+        long timeouts = outcomes.timeouts().sum();
+        long transportErrors = outcomes.transportErrors().sum();
+        long total = latencies.getTotalCount() + timeouts + transportErrors;
+        long failed = outcomes.statuses().entrySet().stream()
+                .filter(entry -> entry.getKey() != 200)
+                .mapToLong(entry -> entry.getValue().sum())
+                .sum() + timeouts + transportErrors;
+        double rps = latencies.getTotalCount() / seconds;
+        double errorRate = total == 0 ? 1 : (double) failed / total;
+        long p99Millis = latencies.getValueAtPercentile(99) / 1_000_000;
+        long peakHeapMb = peakHeap() / (1024 * 1024);
+        long liveHeapMb = liveHeapAfterGc() / (1024 * 1024);
+
+        System.out.printf("""
+                        Load: %d clients for %.0f s, %d requests, %.1f req/s, upstream calls %d (%d errors injected)
+                        Latency ms: p50 %.1f  p99 %.1f  p99.9 %.1f  max %.1f
+                        Statuses: %s, timeouts %d, transport errors %d
+                        Heap: peak %d MB, live after GC %d MB
+                        """,
+                CLIENTS, seconds, total, rps, stub.requests() - upstreamBefore, stub.errors(),
+                latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(99) / 1e6,
+                latencies.getValueAtPercentile(99.9) / 1e6, latencies.getMaxValue() / 1e6,
+                new TreeMap<>(outcomes.statuses()), timeouts, transportErrors, peakHeapMb, liveHeapMb);
+
+        assertTrue(rps >= MIN_RPS, "throughput " + rps + " req/s below " + MIN_RPS);
+        assertTrue(p99Millis <= MAX_P99_MILLIS, "p99 " + p99Millis + " ms above " + MAX_P99_MILLIS);
+        assertTrue(errorRate <= MAX_ERROR_RATE, "error rate " + errorRate + " above " + MAX_ERROR_RATE);
+        assertTrue(liveHeapMb <= MAX_LIVE_HEAP_MB, "live heap " + liveHeapMb + " MB above " + MAX_LIVE_HEAP_MB);
+    }
+
+    /**
+     * Keeps {@code CLIENTS} requests in flight for {@code duration}, recording their outcomes
+     * when given.
+     */
+    private static void run(WebClient client, Duration duration, Outcomes outcomes) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Flux.range(0, CLIENTS)
+                .flatMap(clientId -> Mono.defer(() -> request(client, outcomes))
+                        .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                .blockLast(duration.plusMinutes(1));
+    }
+
+    private static Mono<Void> request(WebClient client, Outcomes outcomes) {
+        long started = System.nanoTime();
+        return client.get()
+                .uri("/api/github/user/{username}/repositories", "loaduser" + pickUser())
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(REQUEST_TIMEOUT)
+                .doOnNext(status -> {
+                    if (outcomes != null) {
+                        outcomes.latencies().recordValue(System.nanoTime() - started);
+                        outcomes.statuses().computeIfAbsent(status, key -> new LongAdder()).increment();
+                    }
+                })
+                .onErrorResume(e -> {
+                    if (outcomes != null) {
+                        (e instanceof TimeoutException ? outcomes.timeouts() : outcomes.transportErrors()).increment();
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Latencies and statuses of answered requests, and the requests that got no answer: those
+     * cut off after {@link #REQUEST_TIMEOUT} and those that failed in transport.
+     */
+    private record Outcomes(Recorder latencies, Map<Integer, LongAdder> statuses, LongAdder timeouts,
+                            LongAdder transportErrors) {
+    }
+
+    /**
+     * Squaring a uniform draw favours low user numbers: the top 10% of users get about a third
+     * of the requests.
+     */
+    private static int pickUser() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (USERS * r * r);
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static long liveHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.githubapi;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"github.cache.enabled=false", "github.api.tokens=token-a,token-b"})
+public class GitHubTokenPoolIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @RegisterExtension
+    static WireMockExtension wireMockServer = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().dynamicPort())
+            .build();
+
+    @DynamicPropertySource
+    static void githubProperties(DynamicPropertyRegistry registry) {
+        registry.add("github.api.base-url", wireMockServer::baseUrl);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        WireMock.configureFor("localhost", wireMockServer.getPort());
+        wireMockServer.resetAll();
+    }
+
+    @Test
+    public void testExhaustedTokenIsParkedAndCallsMoveToTheOtherToken() {
+        long reset = Instant.now().plusSeconds(3600).getEpochSecond();
+        // token-a has used up its quota, token-b has plenty left
+        stubFor(get(urlPathMatching("/users/[a-z0-9]+/repos"))
+                .withHeader("Authorization", equalTo("Bearer token-a"))
+                .willReturn(okJson("[]")
+                        .withHeader("X-RateLimit-Limit", "5000")
+                        .withHeader("X-RateLimit-Remaining", "0")
+                        .withHeader("X-RateLimit-Reset", String.valueOf(reset))));
+        stubFor(get(urlPathMatching("/users/[a-z0-9]+/repos"))
+                .withHeader("Authorization", equalTo("Bearer token-b"))
+                .willReturn(okJson("[]")
+                        .withHeader("X-RateLimit-Limit", "5000")
+                        .withHeader("X-RateLimit-Remaining", "4000")
+                        .withHeader("X-RateLimit-Reset", String.valueOf(reset))));
+
+        for (int i = 0; i < 5; i++) {
+            webTestClient.get()
+                    .uri("http://localhost:" + port + "/api/github/user/pooluser" + i + "/repositories")
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        // Both tokens start unknown; after token-a reports an empty quota it is no longer used
+        verify(1, getRequestedFor(urlPathMatching("/users/[a-z0-9]+/repos"))
+                .withHeader("Authorization", equalTo("Bearer token-a")));
+        verify(4, getRequestedFor(urlPathMatching("/users/[a-z0-9]+/repos"))
+                .withHeader("Authorization", equalTo("Bearer token-b")));
+
+        assertEquals(0.0, meterRegistry.get("github.ratelimit.remaining").tag("token", "token-1").gauge().value());
+        assertEquals(4000.0, meterRegistry.get("github.ratelimit.remaining").tag("token", "token-2").gauge().value());
+        assertEquals(1.0, meterRegistry.get("github.ratelimit.parked").gauge().value());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.githubapi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time and memory of {@link GitHubApiApplication} for each packaging that has been
+ * built: the plain jar, the CDS archive with AOT initialization ({@code -P cds}) and the native
+ * executable ({@code -P native native:compile}). Each variant is started {@code startup.runs}
+ * times; a run is timed from process start until {@code /actuator/health} answers {@code 200},
+ * and the resident set size is read at that point. Run with {@code mvn -P cds,startup verify}
+ * (Linux, since RSS is read from {@code /proc}).
+ */
+public class StartupComparison {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupComparison.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    record Variant(String name, List<String> command) {
+    }
+
+    record Run(long startupMillis, long rssKilobytes) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path target = Path.of(args.length > 0 ? args[0] : "target");
+        String finalName = args.length > 1 ? args[1] : "github-api-0.0.1-SNAPSHOT";
+        int runs = Integer.getInteger("startup.runs", 5);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<Variant> variants = new ArrayList<>();
+        Path jar = target.resolve(finalName + ".jar");
+        if (Files.exists(jar)) {
+            variants.add(new Variant("jvm", List.of(java, "-jar", jar.toString())));
+        }
+        Path archive = target.resolve("cds/application.jsa");
+        if (Files.exists(archive)) {
+            variants.add(new Variant("jvm+cds+aot", List.of(java, "-XX:SharedArchiveFile=" + archive,
+                    "-Dspring.aot.enabled=true", "-jar", target.resolve("cds/" + finalName + ".jar").toString())));
+        }
+        Path executable = target.resolve("github-api");
+        if (Files.isExecutable(executable)) {
+            variants.add(new Variant("native", List.of(executable.toString())));
+        }
+        if (variants.isEmpty()) {
+            throw new IllegalStateException("Nothing to start in " + target.toAbsolutePath() + "; package first");
+        }
+
+        StartupComparison comparison = new StartupComparison();
+        StringBuilder report = new StringBuilder(String.format("%n%-12s %14s %14s %10s%n",
+                "variant", "startup p50", "startup max", "RSS p50"));
+        for (Variant variant : variants) {
+            List<Run> results = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                Run run = comparison.start(variant);
+                log.info("{} run {}: ready in {} ms, RSS {} MB", variant.name(), i + 1, run.startupMillis(),
+                        run.rssKilobytes() / 1024);
+                results.add(run);
+            }
+            long[] startup = results.stream().mapToLong(Run::startupMillis).sorted().toArray();
+            long[] rss = results.stream().mapToLong(Run::rssKilobytes).sorted().toArray();
+            report.append(String.format("%-12s %11d ms %11d ms %7d MB%n", variant.name(),
+                    startup[startup.length / 2], startup[startup.length - 1], rss[rss.length / 2] / 1024));
+        }
+        log.info("Startup comparison over {} runs each:{}", runs, report);
+    }
+
+    Run start(Variant variant) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        command.add("--server.port=" + port);
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        // GitHub is never called, so tokens from the environment are left out
+        builder.environment().keySet().removeIf(key -> key.startsWith("GITHUB_"));
+
+        long started = System.nanoTime();
+        Process process = builder.start();
+        try {
+            awaitHealthy(process, port);
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return new Run(startupMillis, rssKilobytes(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private void awaitHealthy(Process process, int port) throws InterruptedException, IOException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Exited with " + process.exitValue() + " before it was ready");
+            }
+            try {
+                if (httpClient.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException | HttpTimeoutException e) {
+                // not listening or not answering yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Not ready after " + TIMEOUT);
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.substring("VmRSS:".length()).trim().split("\\s+")[0]);
+            }
+        }
+        throw new IllegalStateException("No VmRSS for process " + pid);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
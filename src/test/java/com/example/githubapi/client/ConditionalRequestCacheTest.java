@@ -0,0 +1,155 @@
+package com.example.githubapi.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalRequestCacheTest {
+
+    private static final URI URL = URI.create("https://api.github.com/users/testuser/repos?page=1");
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConditionalRequestCache conditionalRequestCache;
+    private List<ClientRequest> sentRequests;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        conditionalRequestCache = new ConditionalRequestCache(DataSize.ofMegabytes(1), Duration.ofMinutes(1), meterRegistry);
+        sentRequests = new ArrayList<>();
+    }
+
+    @Test
+    void filter_NotModifiedReplaysCachedBody() {
+        // Arrange
+        ClientResponse first = ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.ETAG, "\"v1\"")
+                .header(HttpHeaders.LINK, "<https://api.github.com/user/1/repos?page=2>; rel=\"next\"")
+                .body("[\"repo1\"]")
+                .build();
+        ClientResponse second = ClientResponse.create(HttpStatus.NOT_MODIFIED)
+                .header("X-RateLimit-Remaining", "4999")
+                .build();
+
+        // Act
+        String firstBody = exchange(first).bodyToMono(String.class).block();
+        ClientResponse replayed = exchange(second);
+
+        // Assert
+        assertEquals("[\"repo1\"]", firstBody);
+        assertEquals(HttpStatus.OK, replayed.statusCode());
+        assertEquals("[\"repo1\"]", replayed.bodyToMono(String.class).block());
+        assertEquals(List.of("<https://api.github.com/user/1/repos?page=2>; rel=\"next\""), replayed.headers().header(HttpHeaders.LINK));
+        assertEquals(List.of("4999"), replayed.headers().header("X-RateLimit-Remaining"));
+        assertNull(sentRequests.get(0).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals("\"v1\"", sentRequests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(1.0, meterRegistry.get("github.etag.requests").tag("result", "not_modified").counter().count());
+        assertEquals(1.0, meterRegistry.get("github.etag.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void filter_ChangedResponseReplacesCachedBody() {
+        // Arrange
+        ClientResponse first = ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v1\"").body("old").build();
+        ClientResponse second = ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v2\"").body("new").build();
+        ClientResponse third = ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+
+        // Act
+        exchange(first).bodyToMono(String.class).block();
+        exchange(second).bodyToMono(String.class).block();
+        String body = exchange(third).bodyToMono(String.class).block();
+
+        // Assert
+        assertEquals("new", body);
+        assertEquals("\"v2\"", sentRequests.get(2).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    void filter_ResponseWithoutEtagIsNotCached() {
+        // Arrange
+        ClientResponse first = ClientResponse.create(HttpStatus.OK).body("body").build();
+        ClientResponse second = ClientResponse.create(HttpStatus.OK).body("body").build();
+
+        // Act
+        exchange(first).bodyToMono(String.class).block();
+        exchange(second).bodyToMono(String.class).block();
+
+        // Assert
+        assertNull(sentRequests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(2.0, meterRegistry.get("github.etag.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void filter_KeysOnThePathAndQueryNotTheHost() {
+        // Arrange
+        ClientResponse first = ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v1\"").body("body").build();
+        ClientResponse second = ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+        ClientResponse third = ClientResponse.create(HttpStatus.OK).body("page 2").build();
+
+        // Act
+        exchange(URL, first).bodyToMono(String.class).block();
+        String replayed = exchange(URI.create("https://mirror.example.com/users/testuser/repos?page=1"), second)
+                .bodyToMono(String.class).block();
+        exchange(URI.create("https://api.github.com/users/testuser/repos?page=2"), third).bodyToMono(String.class).block();
+
+        // Assert
+        assertEquals("body", replayed);
+        assertEquals("\"v1\"", sentRequests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertNull(sentRequests.get(2).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    void filter_KeysOnTheCredentialOfTheCall() {
+        // Arrange
+        ClientResponse first = ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v1\"").body("token-1 view").build();
+        ClientResponse second = ClientResponse.create(HttpStatus.OK).header(HttpHeaders.ETAG, "\"v2\"").body("token-2 view").build();
+        ClientResponse third = ClientResponse.create(HttpStatus.NOT_MODIFIED).build();
+
+        // Act
+        exchange("token-1", first).bodyToMono(String.class).block();
+        String otherCredential = exchange("token-2", second).bodyToMono(String.class).block();
+        String replayed = exchange("token-1", third).bodyToMono(String.class).block();
+
+        // Assert
+        assertEquals("token-2 view", otherCredential);
+        assertNull(sentRequests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals("token-1 view", replayed);
+        assertEquals("\"v1\"", sentRequests.get(2).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    private ClientResponse exchange(ClientResponse upstreamResponse) {
+        return exchange(URL, upstreamResponse);
+    }
+
+    private ClientResponse exchange(String credential, ClientResponse upstreamResponse) {
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URL)
+                .attribute(GitHubTokenPool.CREDENTIAL_ATTRIBUTE, credential)
+                .build();
+        return exchange(request, upstreamResponse);
+    }
+
+    private ClientResponse exchange(URI url, ClientResponse upstreamResponse) {
+        return exchange(ClientRequest.create(HttpMethod.GET, url).build(), upstreamResponse);
+    }
+
+    private ClientResponse exchange(ClientRequest request, ClientResponse upstreamResponse) {
+        return conditionalRequestCache.filter(request, sent -> {
+            sentRequests.add(sent);
+            return Mono.just(upstreamResponse);
+        }).block();
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.githubapi.client;
+
+import com.example.githubapi.exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitSchedulerTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+    private static final URI FIRST_PAGE = URI.create("https://api.github.com/users/testuser/repos?per_page=100&page=1");
+    private static final URI SECOND_PAGE = URI.create("https://api.github.com/users/testuser/repos?per_page=100&page=2");
+    private static final URI BRANCHES = URI.create("https://api.github.com/repos/testuser/repo1/branches?per_page=100&page=1");
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitScheduler rateLimitScheduler;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimitScheduler = scheduler(List.of());
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void filter_PassesThroughWhileQuotaIsUnknown() {
+        // Act
+        ClientResponse response = exchange(BRANCHES, ok(-1)).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_ExhaustedQuotaFailsFastWithoutCallingGitHub() {
+        // Arrange
+        exchange(FIRST_PAGE, ok(0)).block();
+
+        // Act
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> exchange(FIRST_PAGE, ok(0)).block());
+
+        // Assert
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(Duration.ofSeconds(600), exception.getRetryAfter());
+        assertEquals(1.0, meterRegistry.get("github.ratelimit.rejected").counter().count());
+    }
+
+    @Test
+    void filter_ReserveIsKeptForFirstPageCalls() {
+        // Arrange
+        exchange(FIRST_PAGE, ok(5)).block();
+
+        // Act
+        assertThrows(RateLimitExceededException.class, () -> exchange(BRANCHES, ok(4)).block());
+        assertThrows(RateLimitExceededException.class, () -> exchange(SECOND_PAGE, ok(4)).block());
+        ClientResponse firstPage = exchange(FIRST_PAGE, ok(4)).block();
+
+        // Assert
+        assertNotNull(firstPage);
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_LowPriorityCallsAreRejectedWhenPacingWouldWaitTooLong() {
+        // Arrange: 20 requests left for 600 seconds means one call every 30 seconds
+        exchange(FIRST_PAGE, ok(20)).block();
+
+        // Act & Assert
+        assertThrows(RateLimitExceededException.class, () -> exchange(BRANCHES, ok(19)).block());
+        assertNotNull(exchange(FIRST_PAGE, ok(19)).block());
+    }
+
+    @Test
+    void filter_ConcurrentPacedCallsAreSpacedApart() throws Exception {
+        // Arrange: 40 requests left for 40 seconds means one call per second, and a 2 second max wait
+        rateLimitScheduler.filter(request(FIRST_PAGE), request -> Mono.just(response(HttpStatus.OK, 40, NOW.plusSeconds(40)))).block();
+        ExchangeFunction github = request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just(response(HttpStatus.OK, 40, NOW.plusSeconds(40)));
+        };
+
+        // Act
+        long started = System.nanoTime();
+        CompletableFuture<ClientResponse> first = rateLimitScheduler.filter(request(BRANCHES), github).toFuture();
+        CompletableFuture<ClientResponse> second = rateLimitScheduler.filter(request(BRANCHES), github).toFuture();
+        CompletableFuture<ClientResponse> third = rateLimitScheduler.filter(request(BRANCHES), github).toFuture();
+        CompletableFuture<ClientResponse> fourth = rateLimitScheduler.filter(request(BRANCHES), github).toFuture();
+
+        // Assert: slots at 0, 1 and 2 seconds; the fourth would wait 3 seconds and is refused
+        first.get(5, TimeUnit.SECONDS);
+        Duration firstWaited = Duration.ofNanos(System.nanoTime() - started);
+        second.get(5, TimeUnit.SECONDS);
+        Duration secondWaited = Duration.ofNanos(System.nanoTime() - started);
+        third.get(5, TimeUnit.SECONDS);
+        Duration thirdWaited = Duration.ofNanos(System.nanoTime() - started);
+        ExecutionException refused = assertThrows(ExecutionException.class, () -> fourth.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RateLimitExceededException.class, refused.getCause());
+        assertTrue(firstWaited.compareTo(Duration.ofMillis(900)) < 0, "first waited " + firstWaited);
+        assertTrue(secondWaited.compareTo(Duration.ofMillis(900)) >= 0, "second waited " + secondWaited);
+        assertTrue(thirdWaited.compareTo(Duration.ofMillis(1900)) >= 0, "third waited " + thirdWaited);
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_DefaultReserveAndPacingFitTheAnonymousLimit() {
+        // Arrange: the application.properties defaults against GitHub's anonymous limit of 60
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        RateLimitScheduler scheduler = new RateLimitScheduler(new GitHubTokenPool(List.of(), clock, meterRegistry),
+                100, 500, Duration.ofSeconds(2), clock, meterRegistry);
+        ExchangeFunction github = request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just(response(HttpStatus.OK, 60, 59 - upstreamCalls.get(), NOW.plusSeconds(3000)));
+        };
+        scheduler.filter(request(FIRST_PAGE), github).block();
+
+        // Act
+        long started = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            scheduler.filter(request(BRANCHES), github).block();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        // Assert
+        assertEquals(11, upstreamCalls.get());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+    }
+
+    @Test
+    void filter_UpstreamRateLimitResponseBecomesRateLimitExceeded() {
+        // Act
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> exchange(FIRST_PAGE, response(HttpStatus.FORBIDDEN, 0, NOW.plusSeconds(120))).block());
+
+        // Assert
+        assertEquals(Duration.ofSeconds(120), exception.getRetryAfter());
+    }
+
+    @Test
+    void filter_SecondaryRateLimitUsesRetryAfter() {
+        // Arrange
+        ClientResponse secondaryLimit = ClientResponse.create(HttpStatus.FORBIDDEN).header("Retry-After", "30").build();
+
+        // Act
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> exchange(BRANCHES, secondaryLimit).block());
+
+        // Assert
+        assertEquals(Duration.ofSeconds(30), exception.getRetryAfter());
+    }
+
+    @Test
+    void filter_CallsGoToTheTokenWithTheMostBudget() {
+        // Arrange
+        List<String> sentTokens = new ArrayList<>();
+        RateLimitScheduler scheduler = scheduler(List.of("token-a", "token-b"));
+        ExchangeFunction github = request -> {
+            String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+            sentTokens.add(authorization);
+            int remaining = authorization.equals("Bearer token-a") ? 100 : 3000;
+            return Mono.just(response(HttpStatus.OK, remaining, NOW.plusSeconds(600)));
+        };
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            scheduler.filter(request(FIRST_PAGE), github).block();
+        }
+
+        // Assert: both start unknown, then token-b reports more budget and keeps getting the calls
+        assertEquals(List.of("Bearer token-a", "Bearer token-b", "Bearer token-b", "Bearer token-b"), sentTokens);
+        assertEquals(3.0, meterRegistry.get("github.ratelimit.requests").tag("token", "token-2").counter().count());
+        assertEquals(3000.0, meterRegistry.get("github.ratelimit.remaining").tag("token", "token-2").gauge().value());
+    }
+
+    @Test
+    void filter_ExhaustedTokensAreParkedUntilTheFirstReset() {
+        // Arrange: a fresh registry, the pool from setUp already registered an untagged parked gauge
+        meterRegistry = new SimpleMeterRegistry();
+        RateLimitScheduler scheduler = scheduler(List.of("token-a", "token-b"));
+        scheduler.filter(request(FIRST_PAGE), request -> Mono.just(response(HttpStatus.OK, 0, NOW.plusSeconds(300)))).block();
+        scheduler.filter(request(FIRST_PAGE), request -> Mono.just(response(HttpStatus.OK, 0, NOW.plusSeconds(90)))).block();
+
+        // Act
+        RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+                () -> scheduler.filter(request(FIRST_PAGE), request -> Mono.error(new AssertionError("called GitHub"))).block());
+
+        // Assert
+        assertEquals(Duration.ofSeconds(90), exception.getRetryAfter());
+        assertEquals(2.0, meterRegistry.get("github.ratelimit.parked").gauge().value());
+    }
+
+    @Test
+    void filter_QuotaIsTrackedPerResource() {
+        // Arrange
+        URI graphQl = URI.create("https://api.github.com/graphql");
+        ClientResponse graphQlResponse = ClientResponse.create(HttpStatus.OK)
+                .header("X-RateLimit-Limit", "5000")
+                .header("X-RateLimit-Remaining", "4999")
+                .header("X-RateLimit-Reset", String.valueOf(NOW.plusSeconds(600).getEpochSecond()))
+                .header("X-RateLimit-Resource", "graphql")
+                .build();
+        exchange(FIRST_PAGE, ok(0)).block();
+
+        // Act
+        ClientResponse passed = rateLimitScheduler.filter(ClientRequest.create(HttpMethod.POST, graphQl).build(), request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just(graphQlResponse);
+        }).block();
+
+        // Assert: the exhausted core quota neither blocks GraphQL nor is reset by its response
+        assertNotNull(passed);
+        assertThrows(RateLimitExceededException.class, () -> exchange(FIRST_PAGE, ok(0)).block());
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void resource_ByCallPath() {
+        assertEquals("graphql", RateLimitScheduler.resource(ClientRequest.create(HttpMethod.POST, URI.create("https://api.github.com/graphql")).build()));
+        assertEquals("search", RateLimitScheduler.resource(request(URI.create("https://api.github.com/search/repositories?q=user:testuser"))));
+        assertEquals("core", RateLimitScheduler.resource(request(FIRST_PAGE)));
+        assertEquals("core", RateLimitScheduler.resource(request(BRANCHES)));
+    }
+
+    @Test
+    void isHighPriority_FirstRepositoryPageAndGraphQl() {
+        assertTrue(RateLimitScheduler.isHighPriority(request(FIRST_PAGE)));
+        assertTrue(RateLimitScheduler.isHighPriority(request(URI.create("https://api.github.com/users/testuser/repos"))));
+        assertTrue(RateLimitScheduler.isHighPriority(ClientRequest.create(HttpMethod.POST, URI.create("https://api.github.com/graphql")).build()));
+        assertFalse(RateLimitScheduler.isHighPriority(request(SECOND_PAGE)));
+        assertFalse(RateLimitScheduler.isHighPriority(request(BRANCHES)));
+        assertTrue(RateLimitScheduler.isHighPriority(request(URI.create("https://ghe.example.com/api/v3/users/testuser/repos?page=1"))));
+        assertFalse(RateLimitScheduler.isHighPriority(request(URI.create("https://ghe.example.com/api/v3/users/testuser/repos?page=2"))));
+    }
+
+    private RateLimitScheduler scheduler(List<String> tokens) {
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        return new RateLimitScheduler(new GitHubTokenPool(tokens, clock, meterRegistry),
+                10, 50, Duration.ofSeconds(2), clock, meterRegistry);
+    }
+
+    private Mono<ClientResponse> exchange(URI url, ClientResponse upstreamResponse) {
+        return rateLimitScheduler.filter(request(url), request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just(upstreamResponse);
+        });
+    }
+
+    private static ClientRequest request(URI url) {
+        return ClientRequest.create(HttpMethod.GET, url).build();
+    }
+
+    private static ClientResponse ok(int remaining) {
+        return response(HttpStatus.OK, remaining, NOW.plusSeconds(600));
+    }
+
+    private static ClientResponse response(HttpStatus status, int remaining, Instant reset) {
+        return response(status, 5000, remaining, reset);
+    }
+
+    private static ClientResponse response(HttpStatus status, int limit, int remaining, Instant reset) {
+        ClientResponse.Builder builder = ClientResponse.create(status);
+        if (remaining >= 0) {
+            builder.header("X-RateLimit-Limit", String.valueOf(limit))
+                    .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                    .header("X-RateLimit-Reset", String.valueOf(reset.getEpochSecond()));
+        }
+        return builder.build();
+    }
+}
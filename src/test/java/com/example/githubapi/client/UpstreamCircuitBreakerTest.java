@@ -0,0 +1,160 @@
+package com.example.githubapi.client;
+
+import com.example.githubapi.exceptions.UpstreamUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamCircuitBreakerTest {
+
+    private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET,
+            URI.create("https://api.github.com/repos/testuser/repo1/branches")).build();
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamCircuitBreaker circuitBreaker;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-06-01T12:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new UpstreamCircuitBreaker(3, Duration.ofSeconds(30), Duration.ofMillis(100), clock, meterRegistry);
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void filter_OpensAfterConsecutiveFailuresAndFailsFast() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            exchange(HttpStatus.BAD_GATEWAY).block();
+        }
+
+        // Act
+        UpstreamUnavailableException exception = assertThrows(UpstreamUnavailableException.class,
+                () -> exchange(HttpStatus.OK).block());
+
+        // Assert
+        assertEquals(3, upstreamCalls.get());
+        assertEquals(Duration.ofSeconds(30), exception.getRetryAfter());
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(1.0, meterRegistry.get("github.circuit.rejected").counter().count());
+    }
+
+    @Test
+    void filter_SuccessResetsTheFailureCount() {
+        // Arrange
+        exchange(HttpStatus.BAD_GATEWAY).block();
+        exchange(HttpStatus.BAD_GATEWAY).block();
+        exchange(HttpStatus.NOT_FOUND).block();
+
+        // Act
+        exchange(HttpStatus.BAD_GATEWAY).block();
+
+        // Assert
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void filter_SuccessfulProbeClosesTheCircuit() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            exchange(HttpStatus.BAD_GATEWAY).block();
+        }
+        clock.advance(Duration.ofSeconds(31));
+        assertEquals(UpstreamCircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+
+        // Act
+        ClientResponse response = exchange(HttpStatus.OK).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void filter_FailedProbeReopensTheCircuit() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            exchange(HttpStatus.BAD_GATEWAY).block();
+        }
+        clock.advance(Duration.ofSeconds(31));
+
+        // Act
+        Mono<ClientResponse> probe = circuitBreaker.filter(REQUEST, request -> Mono.error(new IllegalStateException("connection reset")));
+        assertThrows(IllegalStateException.class, probe::block);
+
+        // Assert
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertThrows(UpstreamUnavailableException.class, () -> exchange(HttpStatus.OK).block());
+    }
+
+    @Test
+    void filter_HangingCallsTimeOutAndOpenTheCircuit() {
+        // Arrange
+        Mono<ClientResponse> hanging = circuitBreaker.filter(REQUEST, request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.never();
+        });
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class, hanging::block);
+        }
+
+        // Assert
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertThrows(UpstreamUnavailableException.class, () -> exchange(HttpStatus.OK).block());
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    private Mono<ClientResponse> exchange(HttpStatus status) {
+        return circuitBreaker.filter(REQUEST, request -> {
+            upstreamCalls.incrementAndGet();
+            return Mono.just(ClientResponse.create(status).build());
+        });
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
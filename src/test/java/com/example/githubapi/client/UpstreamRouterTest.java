@@ -0,0 +1,155 @@
+package com.example.githubapi.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamRouterTest {
+
+    private static final String BASE_URL = "https://api.github.com";
+    private static final String MIRROR = "https://ghe.example.com/api/v3";
+    private static final ClientRequest REQUEST = ClientRequest.create(HttpMethod.GET,
+            URI.create(BASE_URL + "/repos/testuser/repo1/branches?per_page=100")).build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<String, AtomicInteger> callsByHost;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        callsByHost = new ConcurrentHashMap<>();
+    }
+
+    @Test
+    void filter_RewritesTheBaseUrlToTheChosenEndpoint() {
+        // Arrange
+        UpstreamRouter router = new UpstreamRouter(BASE_URL, List.of(MIRROR), false, 0.95, Duration.ofMillis(50),
+                0.1, () -> Integer.MAX_VALUE, 0, meterRegistry);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        router.filter(REQUEST, request -> {
+            calls.incrementAndGet();
+            assertEquals(MIRROR + "/repos/testuser/repo1/branches?per_page=100", request.url().toString());
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        }).block();
+
+        // Assert
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void filter_PrefersTheFasterEndpoint() {
+        // Arrange
+        UpstreamRouter router = new UpstreamRouter(BASE_URL, List.of(BASE_URL, MIRROR), false, 0.95,
+                Duration.ofMillis(50), 0.1, () -> Integer.MAX_VALUE, 0, meterRegistry);
+        ExchangeFunction upstream = respondAfter(Map.of("api.github.com", Duration.ofMillis(40),
+                "ghe.example.com", Duration.ZERO));
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            router.filter(REQUEST, upstream).block();
+        }
+
+        // Assert
+        assertTrue(callsByHost.get("ghe.example.com").get() >= 18, "calls by host: " + callsByHost);
+    }
+
+    @Test
+    void filter_HedgesASlowCallAndTakesTheFirstResponse() {
+        // Arrange
+        UpstreamRouter router = new UpstreamRouter(BASE_URL, List.of(), true, 0.95, Duration.ofMillis(20),
+                1.0, () -> Integer.MAX_VALUE, 0, meterRegistry);
+        ExchangeFunction fast = respondAfter(Map.of("api.github.com", Duration.ZERO));
+        for (int i = 0; i < UpstreamRouter.MIN_SAMPLES; i++) {
+            router.filter(REQUEST, fast).block();
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        ExchangeFunction firstCallStalls = request -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).thenReturn(ClientResponse.create(HttpStatus.OK).build())
+                : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+        // Act
+        long started = System.nanoTime();
+        ClientResponse response = router.filter(REQUEST, firstCallStalls).block();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        // Assert
+        assertNotNull(response);
+        assertEquals(2, attempts.get());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+        assertEquals(1.0, meterRegistry.get("github.upstream.hedges").tag("result", "sent").counter().count());
+        assertEquals(1.0, meterRegistry.get("github.upstream.hedges").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void filter_DoesNotHedgeBeyondTheRatio() {
+        // Arrange
+        UpstreamRouter router = new UpstreamRouter(BASE_URL, List.of(), true, 0.95, Duration.ofMillis(20),
+                0.0, () -> Integer.MAX_VALUE, 0, meterRegistry);
+        ExchangeFunction fast = respondAfter(Map.of("api.github.com", Duration.ZERO));
+        for (int i = 0; i < UpstreamRouter.MIN_SAMPLES; i++) {
+            router.filter(REQUEST, fast).block();
+        }
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        router.filter(REQUEST, request -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(200)).thenReturn(ClientResponse.create(HttpStatus.OK).build());
+        }).block();
+
+        // Assert
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, meterRegistry.get("github.upstream.hedges").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void filter_DoesNotHedgeWhileTheRateLimitBudgetIsLow() {
+        // Arrange
+        AtomicInteger budget = new AtomicInteger(1000);
+        UpstreamRouter router = new UpstreamRouter(BASE_URL, List.of(), true, 0.95, Duration.ofMillis(20),
+                1.0, budget::get, 500, meterRegistry);
+        ExchangeFunction fast = respondAfter(Map.of("api.github.com", Duration.ZERO));
+        for (int i = 0; i < UpstreamRouter.MIN_SAMPLES; i++) {
+            router.filter(REQUEST, fast).block();
+        }
+        budget.set(499);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        router.filter(REQUEST, request -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(200)).thenReturn(ClientResponse.create(HttpStatus.OK).build());
+        }).block();
+
+        // Assert
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, meterRegistry.get("github.upstream.hedges").tag("result", "sent").counter().count());
+    }
+
+    private ExchangeFunction respondAfter(Map<String, Duration> latencyByHost) {
+        return request -> {
+            String host = request.url().getHost();
+            callsByHost.computeIfAbsent(host, key -> new AtomicInteger()).incrementAndGet();
+            Duration latency = latencyByHost.get(host);
+            Mono<ClientResponse> response = Mono.just(ClientResponse.create(HttpStatus.OK).build());
+            return latency.isZero() ? response : Mono.delay(latency).then(response);
+        };
+    }
+}
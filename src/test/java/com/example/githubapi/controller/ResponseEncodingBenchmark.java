@@ -0,0 +1,103 @@
+package com.example.githubapi.controller;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode time and size of the response for a user with 500 repositories of five branches each,
+ * in each representation the controller can serve, next to the ETag hash computed for it.
+ * Run {@link #main} from the test classpath; the response sizes are printed once at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new CBORMapper();
+    private final ObjectMapper smile = new SmileMapper();
+
+    private List<Repository> repositories;
+
+    @Setup
+    public void setUp() throws IOException {
+        repositories = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            List<Branch> branches = new ArrayList<>();
+            for (int b = 0; b < 5; b++) {
+                branches.add(new Branch(b == 0 ? "main" : "feature-" + b, String.format("%040x", i * 5L + b)));
+            }
+            repositories.add(new Repository("repository-" + i, "testuser", branches));
+        }
+        System.out.printf("%njson %d B, json+gzip %d B, cbor %d B, cbor+gzip %d B, smile %d B, smile+gzip %d B%n",
+                encodeJson().length, encodeJsonGzip().length, encodeCbor().length, gzip(encodeCbor()).length,
+                encodeSmile().length, gzip(encodeSmile()).length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return json.writeValueAsBytes(repositories);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonGzip() throws IOException {
+        return gzip(json.writeValueAsBytes(repositories));
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() throws IOException {
+        return cbor.writeValueAsBytes(repositories);
+    }
+
+    @Benchmark
+    public byte[] encodeSmile() throws IOException {
+        return smile.writeValueAsBytes(repositories);
+    }
+
+    @Benchmark
+    public String hashEtag() {
+        return RepositoryEtags.hash(repositories);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
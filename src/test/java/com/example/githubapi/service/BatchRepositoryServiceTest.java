@@ -0,0 +1,79 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.exceptions.ServiceOverloadedException;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.UserRepositories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class BatchRepositoryServiceTest {
+
+    private static final List<Repository> REPOSITORIES = List.of(Repository.withoutBranches("repo1", "testuser"));
+
+    @Mock
+    private GitHubService gitHubService;
+
+    private BatchRepositoryService batchRepositoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        batchRepositoryService = new BatchRepositoryService(gitHubService, 1, 10, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchRepositoryService.shutdown();
+    }
+
+    @Test
+    void getUsersRepositories_RejectsABatchThatDoesNotFitTheQueue() {
+        // Arrange
+        when(gitHubService.getUserRepositories(anyString(), anyInt(), any())).thenReturn(Mono.never());
+        // "first" is picked up by the only worker slot and never finishes, "second" keeps waiting
+        Disposable pending = batchRepositoryService.getUsersRepositories(List.of("first", "second")).subscribe();
+
+        // Act
+        Exception exception = assertThrows(ServiceOverloadedException.class,
+                () -> batchRepositoryService.getUsersRepositories(List.of("third", "fourth")).blockLast(Duration.ofSeconds(5)));
+
+        // Assert
+        assertEquals(Duration.ofSeconds(1), ((ServiceOverloadedException) exception).getRetryAfter());
+        pending.dispose();
+    }
+
+    @Test
+    void getUsersRepositories_JobThatThrowsDoesNotStopTheWorker() {
+        // Arrange
+        when(gitHubService.getUserRepositories(eq("broken"), anyInt(), any())).thenThrow(new IllegalStateException("boom"));
+        when(gitHubService.getUserRepositories(eq("testuser"), anyInt(), any())).thenReturn(Mono.just(REPOSITORIES));
+
+        // Act
+        List<UserRepositories> failed = batchRepositoryService.getUsersRepositories(List.of("broken"))
+                .collectList().block(Duration.ofSeconds(5));
+        List<UserRepositories> found = batchRepositoryService.getUsersRepositories(List.of("testuser"))
+                .collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertNotNull(failed);
+        assertEquals(500, failed.get(0).status());
+        assertNotNull(found);
+        assertEquals(200, found.get(0).status());
+        assertEquals(REPOSITORIES, found.get(0).repositories());
+    }
+}
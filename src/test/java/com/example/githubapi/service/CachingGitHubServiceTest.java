@@ -0,0 +1,372 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.exceptions.UserNotFoundException;
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.RepositoryPage;
+import com.example.githubapi.model.RepositoryQuery;
+import com.example.githubapi.store.SnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CachingGitHubServiceTest {
+
+    private static final List<Repository> FIRST = List.of(new Repository("repo1", "testuser", List.of(new Branch("main", "abc123"))));
+    private static final List<Repository> PARTIAL = List.of(Repository.withoutBranches("repo1", "testuser"));
+    private static final List<Repository> SECOND = List.of(new Repository("repo1", "testuser", List.of(new Branch("main", "def456"))));
+
+    @Mock
+    private GitHubService delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CachingGitHubService cachingGitHubService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cachingGitHubService = new CachingGitHubService(delegate, Duration.ofMinutes(5), Duration.ofMinutes(30),
+                1_000, nanos::get, Runnable::run);
+    }
+
+    @Test
+    void getUserRepositories_ConcurrentRequestsShareOneUpstreamLoad() {
+        // Arrange
+        Sinks.One<List<Repository>> upstream = Sinks.one();
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(upstream.asMono());
+
+        // Act
+        Mono<List<Repository>> first = cachingGitHubService.getUserRepositories("testuser", 1, List.of());
+        Mono<List<Repository>> second = cachingGitHubService.getUserRepositories("testuser", 1, List.of());
+        upstream.tryEmitValue(FIRST);
+
+        // Assert
+        assertEquals(FIRST, first.block());
+        assertEquals(FIRST, second.block());
+        verify(delegate, times(1)).getUserRepositories(eq("testuser"), eq(1), any());
+    }
+
+    @Test
+    void getUserRepositories_UsernamesDifferingInCaseShareOneEntry() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(Mono.just(FIRST));
+
+        // Act
+        List<Repository> capitalized = cachingGitHubService.getUserRepositories("TestUser", 1, List.of()).block();
+        List<Repository> lowercase = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+        List<Repository> streamed = cachingGitHubService.streamUserRepositories("TESTUSER").collectList().block();
+
+        // Assert
+        assertEquals(FIRST, capitalized);
+        assertEquals(FIRST, lowercase);
+        assertEquals(FIRST, streamed);
+        assertEquals(Optional.of(FIRST), cachingGitHubService.cachedRepositories("testUser"));
+        verify(delegate, times(1)).getUserRepositories(any(), eq(1), any());
+        verify(delegate, never()).streamUserRepositories(any());
+    }
+
+    @Test
+    void getUserRepositories_StaleEntryIsServedWhileRevalidating() {
+        // Arrange
+        Sinks.One<List<Repository>> revalidation = Sinks.one();
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(Mono.just(FIRST));
+        when(delegate.refreshUserRepositories("testuser", FIRST)).thenReturn(revalidation.asMono());
+        cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        List<Repository> stale = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+        revalidation.tryEmitValue(SECOND);
+        List<Repository> refreshed = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Assert
+        assertEquals(FIRST, stale);
+        assertEquals(SECOND, refreshed);
+        verify(delegate, times(1)).getUserRepositories(eq("testuser"), eq(1), any());
+        verify(delegate, times(1)).refreshUserRepositories("testuser", FIRST);
+    }
+
+    @Test
+    void getUserRepositories_PartialResultIsNotCached() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any()))
+                .thenReturn(Mono.just(PARTIAL))
+                .thenReturn(Mono.just(FIRST));
+
+        // Act
+        List<Repository> partial = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+        List<Repository> complete = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Assert
+        assertEquals(PARTIAL, partial);
+        assertEquals(FIRST, complete);
+        verify(delegate, times(2)).getUserRepositories(eq("testuser"), eq(1), any());
+    }
+
+    @Test
+    void getUserRepositories_PartialRevalidationKeepsStaleEntry() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(Mono.just(FIRST));
+        when(delegate.refreshUserRepositories("testuser", FIRST)).thenReturn(Mono.just(PARTIAL));
+        cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(10).toNanos());
+        cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+        List<Repository> afterRevalidation = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Assert
+        assertEquals(FIRST, afterRevalidation);
+        verify(delegate, times(1)).refreshUserRepositories("testuser", FIRST);
+    }
+
+    @Test
+    void getUserRepositories_ServesSnapshotAfterRestartAndRevalidates(@TempDir Path directory) throws IOException {
+        // Arrange: a previous instance wrote a snapshot
+        Path log = directory.resolve("snapshots.log");
+        try (SnapshotStore previous = new SnapshotStore(log, Duration.ofHours(24), new SimpleMeterRegistry())) {
+            previous.put("testuser", FIRST);
+        }
+        when(delegate.refreshUserRepositories("testuser", FIRST)).thenReturn(Mono.just(SECOND));
+
+        try (SnapshotStore snapshotStore = new SnapshotStore(log, Duration.ofHours(24), new SimpleMeterRegistry())) {
+            CachingGitHubService restarted = new CachingGitHubService(delegate, Duration.ofMinutes(5),
+                    Duration.ofMinutes(30), 1_000, nanos::get, Runnable::run, snapshotStore);
+
+            // Act
+            List<Repository> fromSnapshot = restarted.getUserRepositories("testuser", 1, List.of()).block();
+            List<Repository> revalidated = restarted.getUserRepositories("testuser", 1, List.of()).block();
+
+            // Assert
+            assertEquals(FIRST, fromSnapshot);
+            assertEquals(SECOND, revalidated);
+            assertEquals(SECOND, snapshotStore.get("testuser").orElseThrow().repositories());
+            verify(delegate, never()).getUserRepositories(eq("testuser"), eq(1), any());
+            verify(delegate, times(1)).refreshUserRepositories("testuser", FIRST);
+        }
+    }
+
+    @Test
+    void getUserRepositories_SnapshotIoRunsOnTheSnapshotExecutor(@TempDir Path directory) throws IOException {
+        // Arrange
+        Path log = directory.resolve("snapshots.log");
+        try (SnapshotStore previous = new SnapshotStore(log, Duration.ofHours(24), new SimpleMeterRegistry())) {
+            previous.put("testuser", FIRST);
+        }
+        when(delegate.refreshUserRepositories("testuser", FIRST)).thenReturn(Mono.just(SECOND));
+        AtomicInteger snapshotTasks = new AtomicInteger();
+
+        try (SnapshotStore snapshotStore = new SnapshotStore(log, Duration.ofHours(24), new SimpleMeterRegistry())) {
+            CachingGitHubService restarted = new CachingGitHubService(delegate, Duration.ofMinutes(5),
+                    Duration.ofMinutes(30), 1_000, nanos::get, Runnable::run, snapshotStore, task -> {
+                        snapshotTasks.incrementAndGet();
+                        task.run();
+                    });
+
+            // Act
+            List<Repository> fromSnapshot = restarted.getUserRepositories("testuser", 1, List.of()).block();
+
+            // Assert: the snapshot read, then the write of the revalidated result
+            assertEquals(FIRST, fromSnapshot);
+            assertEquals(2, snapshotTasks.get());
+            assertEquals(SECOND, snapshotStore.get("testuser").orElseThrow().repositories());
+        }
+    }
+
+    @Test
+    void invalidate_SnapshotRemovalIsNotOvertakenByAQueuedWrite(@TempDir Path directory) throws IOException {
+        // Arrange: an executor that runs its queued tasks newest first, as racing threads might
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(Mono.just(FIRST));
+        try (SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("snapshots.log"), Duration.ofHours(24),
+                new SimpleMeterRegistry())) {
+            CachingGitHubService service = new CachingGitHubService(delegate, Duration.ofMinutes(5),
+                    Duration.ofMinutes(30), 1_000, nanos::get, tasks::push, snapshotStore);
+
+            // Act
+            service.getUserRepositories("testuser", 1, List.of()).block();
+            service.invalidate("testuser");
+            boolean writtenOnCallingThread = snapshotStore.contains("testuser");
+            while (!tasks.isEmpty()) {
+                tasks.pop().run();
+            }
+
+            // Assert
+            assertFalse(writtenOnCallingThread);
+            assertFalse(snapshotStore.contains("testuser"));
+        }
+    }
+
+    @Test
+    void getUserRepositories_ExpiredEntryIsReloaded() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any()))
+                .thenReturn(Mono.just(FIRST))
+                .thenReturn(Mono.just(SECOND));
+        cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Act
+        nanos.addAndGet(Duration.ofHours(1).toNanos());
+        List<Repository> repositories = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Assert
+        assertEquals(SECOND, repositories);
+    }
+
+    @Test
+    void getUserRepositories_ErrorsAreNotCached() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("nonexistentuser"), eq(1), any()))
+                .thenReturn(Mono.error(new UserNotFoundException("nonexistentuser")))
+                .thenReturn(Mono.just(List.<Repository>of()));
+
+        // Act
+        Mono<List<Repository>> failed = cachingGitHubService.getUserRepositories("nonexistentuser", 1, List.of());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.toFuture().get());
+        List<Repository> retried = cachingGitHubService.getUserRepositories("nonexistentuser", 1, List.of()).block();
+
+        // Assert
+        assertInstanceOf(UserNotFoundException.class, exception.getCause());
+        assertEquals(List.of(), retried);
+    }
+
+    @Test
+    void getUserRepositories_OtherPagesBypassTheCache() {
+        // Arrange
+        when(delegate.getUserRepositories(eq("testuser"), anyInt(), any())).thenReturn(Mono.just(FIRST));
+
+        // Act
+        cachingGitHubService.getUserRepositories("testuser", 2, List.of()).block();
+        cachingGitHubService.getUserRepositories("testuser", 2, List.of()).block();
+
+        // Assert
+        verify(delegate, times(2)).getUserRepositories(eq("testuser"), eq(2), any());
+    }
+
+    @Test
+    void streamUserRepositories_CompletedStreamIsCached() {
+        // Arrange
+        when(delegate.streamUserRepositories("testuser")).thenReturn(Flux.fromIterable(FIRST));
+
+        // Act
+        List<Repository> streamed = cachingGitHubService.streamUserRepositories("testuser").collectList().block();
+        List<Repository> cached = cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+        List<Repository> restreamed = cachingGitHubService.streamUserRepositories("testuser").collectList().block();
+
+        // Assert
+        assertEquals(FIRST, streamed);
+        assertEquals(FIRST, cached);
+        assertEquals(FIRST, restreamed);
+        verify(delegate, times(1)).streamUserRepositories("testuser");
+        verify(delegate, never()).getUserRepositories(any(), anyInt(), any());
+    }
+
+    @Test
+    void streamUserRepositories_ConcurrentStreamsShareOneUpstreamStream() {
+        // Arrange
+        Sinks.Many<Repository> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        when(delegate.streamUserRepositories("testuser")).thenReturn(upstream.asFlux());
+        List<Repository> both = List.of(FIRST.get(0), new Repository("repo2", "testuser", List.of()));
+
+        // Act
+        CompletableFuture<List<Repository>> first = cachingGitHubService.streamUserRepositories("testuser")
+                .collectList().toFuture();
+        upstream.tryEmitNext(both.get(0));
+        CompletableFuture<List<Repository>> second = cachingGitHubService.streamUserRepositories("testuser")
+                .collectList().toFuture();
+        upstream.tryEmitNext(both.get(1));
+        upstream.tryEmitComplete();
+
+        // Assert
+        assertEquals(both, first.join());
+        assertEquals(both, second.join());
+        assertEquals(both, cachingGitHubService.streamUserRepositories("testuser").collectList().block());
+        verify(delegate, times(1)).streamUserRepositories("testuser");
+    }
+
+    @Test
+    void getUserRepositories_JoinsAStreamInFlightInsteadOfLoadingAgain() {
+        // Arrange
+        Sinks.Many<Repository> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        when(delegate.streamUserRepositories("testuser")).thenReturn(upstream.asFlux());
+
+        // Act
+        CompletableFuture<List<Repository>> streamed = cachingGitHubService.streamUserRepositories("testuser")
+                .collectList().toFuture();
+        upstream.tryEmitNext(FIRST.get(0));
+        CompletableFuture<List<Repository>> buffered = cachingGitHubService.getUserRepositories("testuser", 1, List.of())
+                .toFuture();
+        upstream.tryEmitComplete();
+
+        // Assert
+        assertEquals(FIRST, streamed.join());
+        assertEquals(FIRST, buffered.join());
+        assertEquals(FIRST, cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block());
+        verify(delegate, times(1)).streamUserRepositories("testuser");
+        verify(delegate, never()).getUserRepositories(any(), anyInt(), any());
+    }
+
+    @Test
+    void streamUserRepositories_JoinsABufferedLoadInFlight() {
+        // Arrange
+        Sinks.One<List<Repository>> upstream = Sinks.one();
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(upstream.asMono());
+
+        // Act
+        CompletableFuture<List<Repository>> buffered = cachingGitHubService.getUserRepositories("testuser", 1, List.of())
+                .toFuture();
+        CompletableFuture<List<Repository>> streamed = cachingGitHubService.streamUserRepositories("testuser")
+                .collectList().toFuture();
+        upstream.tryEmitValue(FIRST);
+
+        // Assert
+        assertEquals(FIRST, buffered.join());
+        assertEquals(FIRST, streamed.join());
+        verify(delegate, times(1)).getUserRepositories(eq("testuser"), eq(1), any());
+        verify(delegate, never()).streamUserRepositories(any());
+    }
+
+    @Test
+    void findUserRepositories_UsesCachedListingOrPassesQueryUpstream() {
+        // Arrange
+        RepositoryQuery namesOnly = RepositoryQuery.of("name", null, null, null, null);
+        RepositoryPage upstreamPage = new RepositoryPage(List.of(Repository.summary("repo1", "otheruser")), null);
+        when(delegate.getUserRepositories(eq("testuser"), eq(1), any())).thenReturn(Mono.just(FIRST));
+        when(delegate.findUserRepositories("otheruser", namesOnly)).thenReturn(Mono.just(upstreamPage));
+        cachingGitHubService.getUserRepositories("testuser", 1, List.of()).block();
+
+        // Act
+        RepositoryPage cached = cachingGitHubService.findUserRepositories("testuser", namesOnly).block();
+        RepositoryPage uncached = cachingGitHubService.findUserRepositories("otheruser", namesOnly).block();
+
+        // Assert
+        assertEquals(List.of(Repository.summary("repo1", "testuser")), cached.repositories());
+        assertEquals(upstreamPage, uncached);
+        verify(delegate, never()).findUserRepositories(eq("testuser"), any());
+        verify(delegate, never()).getUserRepositories(eq("otheruser"), anyInt(), any());
+    }
+}
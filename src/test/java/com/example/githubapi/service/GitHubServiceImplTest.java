@@ -1,19 +1,20 @@
 package com.example.githubapi.service;
 
+import com.example.githubapi.exceptions.RateLimitExceededException;
 import com.example.githubapi.exceptions.UserNotFoundException;
 import com.example.githubapi.model.Branch;
 import com.example.githubapi.model.Repository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -35,7 +36,6 @@ class GitHubServiceImplTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
-    @InjectMocks
     private GitHubServiceImpl gitHubService;
 
     @BeforeEach
@@ -45,13 +45,14 @@ class GitHubServiceImplTest {
         when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.header(anyString(), anyString())).thenReturn(requestHeadersSpec);
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        gitHubService = new GitHubServiceImpl(webClient);
     }
 
     @Test
     void getUserRepositories_UserNotFound() {
         // Arrange
         String username = "nonexistentuser";
-        when(responseSpec.bodyToMono(Map[].class))
+        when(responseSpec.toEntity(GitHubServiceImpl.RepositoryResponse[].class))
                 .thenReturn(Mono.error(WebClientResponseException.create(HttpStatus.NOT_FOUND.value(), "Not Found", null, null, null)));
 
         // Act
@@ -94,7 +95,7 @@ class GitHubServiceImplTest {
     void getUserRepositories_EmptyRepositoryList() throws ExecutionException, InterruptedException {
         // Arrange
         String username = "emptyuser";
-        when(responseSpec.bodyToMono(Map[].class)).thenReturn(Mono.just(new Map[]{}));
+        when(responseSpec.toEntity(GitHubServiceImpl.RepositoryResponse[].class)).thenReturn(Mono.just(ResponseEntity.ok(new GitHubServiceImpl.RepositoryResponse[]{})));
 
         // Act
         Mono<List<Repository>> result = gitHubService.getUserRepositories(username, 1, Collections.emptyList());
@@ -109,7 +110,7 @@ class GitHubServiceImplTest {
     void getUserRepositories_HandleOtherErrors() {
         // Arrange
         String username = "testuser";
-        when(responseSpec.bodyToMono(Map[].class))
+        when(responseSpec.toEntity(GitHubServiceImpl.RepositoryResponse[].class))
                 .thenReturn(Mono.error(WebClientResponseException.create(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Internal Server Error", null, null, null)));
 
         // Act
@@ -127,7 +128,7 @@ class GitHubServiceImplTest {
         // Arrange
         String username = "testuser";
         String repoName = "emptybranches";
-        when(responseSpec.bodyToFlux(Map.class)).thenReturn(Flux.empty());
+        when(responseSpec.toEntity(GitHubServiceImpl.BranchResponse[].class)).thenReturn(Mono.just(ResponseEntity.ok(new GitHubServiceImpl.BranchResponse[]{})));
 
         // Act
         Mono<List<Branch>> result = gitHubService.getBranches(username, repoName);
@@ -138,11 +139,47 @@ class GitHubServiceImplTest {
         assertTrue(branches.isEmpty());
     }
 
+    @Test
+    void getUserRepositories_FailedBranchCallMarksOnlyThatRepositoryPartial() {
+        // Arrange
+        stubOneRepository();
+        when(responseSpec.toEntity(GitHubServiceImpl.BranchResponse[].class))
+                .thenReturn(Mono.error(WebClientResponseException.create(HttpStatus.NOT_FOUND.value(), "Not Found", null, null, null)));
+
+        // Act
+        List<Repository> repositories = gitHubService.getUserRepositories("testuser", 1, Collections.emptyList()).block();
+
+        // Assert
+        assertNotNull(repositories);
+        assertTrue(repositories.get(0).partial());
+    }
+
+    @Test
+    void getUserRepositories_RateLimitedBranchCallFailsTheRequest() {
+        // Arrange
+        stubOneRepository();
+        when(responseSpec.toEntity(GitHubServiceImpl.BranchResponse[].class))
+                .thenReturn(Mono.error(new RateLimitExceededException(Duration.ofSeconds(60))));
+
+        // Act
+        Mono<List<Repository>> result = gitHubService.getUserRepositories("testuser", 1, Collections.emptyList());
+
+        // Assert
+        assertThrows(RateLimitExceededException.class, result::block);
+    }
+
+    private void stubOneRepository() {
+        GitHubServiceImpl.RepositoryResponse repository = new GitHubServiceImpl.RepositoryResponse("repo1", false,
+                new GitHubServiceImpl.OwnerResponse("testuser"), null, null);
+        when(responseSpec.toEntity(GitHubServiceImpl.RepositoryResponse[].class))
+                .thenReturn(Mono.just(ResponseEntity.ok(new GitHubServiceImpl.RepositoryResponse[]{repository})));
+    }
+
     @Test
     void getUserRepositories_HandleNonWebClientResponseException() {
         // Arrange
         String username = "testuser";
-        when(responseSpec.bodyToMono(Map[].class))
+        when(responseSpec.toEntity(GitHubServiceImpl.RepositoryResponse[].class))
                 .thenReturn(Mono.error(new RuntimeException("Unexpected error")));
 
         // Act
@@ -0,0 +1,135 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.client.UpstreamCallPolicy;
+import com.example.githubapi.config.WebClientConfig;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.stub.GitHubStub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One user's full load through {@link GitHubServiceImpl} (listing pages, JSON decoding, branch
+ * fan-out) against an in-process {@link GitHubStub}, over real HTTP on loopback. The
+ * {@link WebClient} and its filter chain (ETag cache, rate-limit gate, circuit breaker, router,
+ * metrics) come from {@link WebClientConfig} with its defaults, as in production. {@code load}
+ * is a cold load; {@code refresh} is the incremental revalidation of a cached result, where only
+ * the listing is fetched again.
+ * <p>
+ * With {@code api=graphql} the same account is loaded through {@link GitHubGraphQlServiceImpl}
+ * instead, which has no incremental refresh, so there {@code refresh} is a full load too. The
+ * upstream calls one load takes are logged at setup: with {@code branches} below the refs page
+ * size, REST needs one call per listing page plus one per repository, GraphQL one per page.
+ * <p>
+ * Reports throughput and latency percentiles; run {@link #main} from the test classpath, or
+ * {@code mvn -P benchmark verify}, to add the allocation rate ({@code -prof gc}). Narrow the
+ * parameter grid with {@code -p}, e.g. {@code -p repositories=300 -p latencyMillis=20}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitHubServicePipelineBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(GitHubServicePipelineBenchmark.class);
+
+    @Param({"30", "300"})
+    private int repositories;
+
+    @Param({"5"})
+    private int branches;
+
+    @Param({"100"})
+    private int perPage;
+
+    @Param({"0", "10"})
+    private int latencyMillis;
+
+    @Param({"rest", "graphql"})
+    private String api;
+
+    private GitHubStub stub;
+    private AnnotationConfigApplicationContext context;
+    private GitHubService gitHubService;
+    private List<Repository> cached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Per-call DEBUG logging would measure the console, not the pipeline
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        GitHubStub.Latency latency = GitHubStub.Latency.fixed(Duration.ofMillis(latencyMillis));
+        stub = GitHubStub.start(GitHubStub.Settings.defaults()
+                .withRepositories(repositories, branches)
+                .withLatency(latency, latency));
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of("github.api.base-url", stub.baseUrl())));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.register(WebClientConfig.class);
+        context.refresh();
+        WebClient webClient = context.getBean(WebClient.class);
+        UpstreamCallPolicy callPolicy = context.getBean(UpstreamCallPolicy.class);
+        gitHubService = "graphql".equals(api)
+                ? new GitHubGraphQlServiceImpl(webClient, callPolicy, "/graphql", perPage, perPage, false)
+                : new GitHubServiceImpl(webClient, callPolicy, perPage, 4, 8, false,
+                        true, true, context.getBean(MeterRegistry.class));
+        long requests = stub.requests();
+        cached = gitHubService.getUserRepositories("benchuser", 1, new ArrayList<>()).block();
+        log.warn("api={} repositories={}: {} upstream calls per load", api, repositories, stub.requests() - requests);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        stub.close();
+    }
+
+    @Benchmark
+    public List<Repository> load() {
+        return gitHubService.getUserRepositories("benchuser", 1, new ArrayList<>()).block();
+    }
+
+    @Benchmark
+    public List<Repository> refresh() {
+        return gitHubService.refreshUserRepositories("benchuser", cached).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GitHubServicePipelineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.githubapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTest {
+
+    @Test
+    void record_EvictionsKeepTheTrueTopUsersUnderASkewedStream() {
+        // Arrange: 5 users take half the requests, the other half goes to 5000 users seen about once
+        HeavyHitters heavyHitters = new HeavyHitters(50);
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            if (random.nextBoolean()) {
+                // From hot-0 at 2% of all requests up to hot-4 at 18%
+                heavyHitters.record("hot-" + (int) Math.floor(Math.sqrt(random.nextInt(25))));
+            } else {
+                heavyHitters.record("cold-" + random.nextInt(5_000));
+            }
+        }
+
+        // Assert
+        assertEquals(Set.of("hot-0", "hot-1", "hot-2", "hot-3", "hot-4"), new HashSet<>(heavyHitters.top(5)));
+        assertEquals(50, heavyHitters.size());
+    }
+
+    @Test
+    void top_RanksByCountAndKeepsTheFirstSeenSpelling() {
+        // Arrange
+        HeavyHitters heavyHitters = new HeavyHitters(10);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            heavyHitters.record("Octocat");
+        }
+        heavyHitters.record("torvalds");
+        heavyHitters.record("octocat");
+        heavyHitters.record("torvalds");
+        heavyHitters.record("gaearon");
+
+        // Assert
+        assertEquals(List.of("Octocat", "torvalds", "gaearon"), heavyHitters.top(10));
+        assertEquals(List.of("Octocat"), heavyHitters.top(1));
+    }
+
+    @Test
+    void decay_HalvesCountsAndDropsUsersThatReachZero() {
+        // Arrange
+        HeavyHitters heavyHitters = new HeavyHitters(10);
+        for (int i = 0; i < 4; i++) {
+            heavyHitters.record("octocat");
+        }
+        heavyHitters.record("torvalds");
+        heavyHitters.record("torvalds");
+        heavyHitters.record("gaearon");
+
+        // Act
+        heavyHitters.decay();
+        heavyHitters.record("torvalds");
+        heavyHitters.record("torvalds");
+
+        // Assert: octocat 2, torvalds 1 + 2, gaearon dropped
+        assertEquals(List.of("torvalds", "octocat"), heavyHitters.top(10));
+        assertEquals(2, heavyHitters.size());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.githubapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageLinksTest {
+
+    @Test
+    void parse_NextAndLast() {
+        // Arrange
+        String header = "<https://api.github.com/user/1/repos?per_page=100&page=2>; rel=\"next\", "
+                + "<https://api.github.com/user/1/repos?per_page=100&page=12>; rel=\"last\"";
+
+        // Act
+        PageLinks links = PageLinks.parse(List.of(header));
+
+        // Assert
+        assertEquals(2, links.next());
+        assertEquals(12, links.last());
+    }
+
+    @Test
+    void parse_LastPageHasNoNext() {
+        // Arrange
+        String header = "<https://api.github.com/user/1/repos?page=1>; rel=\"first\", "
+                + "<https://api.github.com/user/1/repos?page=11>; rel=\"prev\"";
+
+        // Act
+        PageLinks links = PageLinks.parse(List.of(header));
+
+        // Assert
+        assertNull(links.next());
+        assertNull(links.last());
+    }
+
+    @Test
+    void parse_MissingHeader() {
+        assertEquals(PageLinks.NONE, PageLinks.parse(null));
+        assertEquals(PageLinks.NONE, PageLinks.parse(List.of()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadRuntimeHintsTest {
+
+    @Test
+    void registerHints_CoversResponsesAndNestedGitHubPayloads() throws NoSuchMethodException {
+        // Arrange
+        RuntimeHints hints = new RuntimeHints();
+
+        // Act
+        new PayloadRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        // Assert
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Repository.class.getMethod("branches")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Branch.class.getMethod("lastCommitSha")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(GitHubServiceImpl.CommitResponse.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(GitHubGraphQlServiceImpl.RefNode.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(WebhookService.PreviousOwner.class).test(hints));
+    }
+}
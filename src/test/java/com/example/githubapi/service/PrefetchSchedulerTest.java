@@ -0,0 +1,137 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.client.GitHubTokenPool;
+import com.example.githubapi.exceptions.UserNotFoundException;
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PrefetchSchedulerTest {
+
+    private static final List<Repository> REPOSITORIES = List.of(new Repository("repo1", "testuser", List.of(new Branch("main", "abc123"))));
+
+    @Mock
+    private GitHubService delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CachingGitHubService cachingGitHubService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(delegate.getUserRepositories(anyString(), eq(1), any())).thenReturn(Mono.just(REPOSITORIES));
+        when(delegate.refreshUserRepositories(anyString(), any())).thenReturn(Mono.just(REPOSITORIES));
+        cachingGitHubService = new CachingGitHubService(delegate, Duration.ofMinutes(5), Duration.ofMinutes(30),
+                1_000, nanos::get, Runnable::run);
+    }
+
+    @Test
+    void run_RefreshesMostRequestedUsersWithinBudget() {
+        // Arrange
+        PrefetchScheduler scheduler = scheduler(Duration.ofMinutes(4), 1, null, 0);
+        for (int i = 0; i < 3; i++) {
+            cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        }
+        cachingGitHubService.getUserRepositories("cold", 1, List.of()).block();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        Integer reloaded = scheduler.run().block();
+
+        // Assert
+        assertEquals(1, reloaded);
+        verify(delegate).refreshUserRepositories("hot", REPOSITORIES);
+        verify(delegate, never()).refreshUserRepositories(eq("cold"), any());
+    }
+
+    @Test
+    void run_SkipsEntriesStillFreshAtTheNextRun() {
+        // Arrange
+        PrefetchScheduler scheduler = scheduler(Duration.ofMinutes(1), 10, null, 0);
+        cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        Integer reloaded = scheduler.run().block();
+
+        // Assert
+        assertEquals(0, reloaded);
+        verify(delegate, never()).refreshUserRepositories(anyString(), any());
+    }
+
+    @Test
+    void run_ContinuesPastUsersThatDoNotExist() {
+        // Arrange
+        PrefetchScheduler scheduler = scheduler(Duration.ofMinutes(4), 10, null, 0);
+        when(delegate.getUserRepositories(eq("ghost"), eq(1), any()))
+                .thenReturn(Mono.error(new UserNotFoundException("User not found: ghost")));
+        cachingGitHubService.getUserRepositories("ghost", 1, List.of()).onErrorResume(e -> Mono.empty()).block();
+        cachingGitHubService.getUserRepositories("ghost", 1, List.of()).onErrorResume(e -> Mono.empty()).block();
+        cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        Integer reloaded = scheduler.run().block();
+
+        // Assert
+        assertEquals(1, reloaded);
+        verify(delegate).refreshUserRepositories("hot", REPOSITORIES);
+    }
+
+    @Test
+    void run_DoesNothingWhileRateLimitBudgetIsLow() {
+        // Arrange
+        GitHubTokenPool tokenPool = new GitHubTokenPool(List.of("token"), Clock.systemUTC(), new SimpleMeterRegistry());
+        PrefetchScheduler scheduler = scheduler(Duration.ofMinutes(4), 10, tokenPool, 10_000);
+        cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        Integer reloaded = scheduler.run().block();
+
+        // Assert
+        assertEquals(0, reloaded);
+        verify(delegate, never()).refreshUserRepositories(anyString(), any());
+    }
+
+    @Test
+    void run_StopsOnceABudgetCheckBeforeARefreshFails() {
+        // Arrange
+        GitHubTokenPool tokenPool = mock(GitHubTokenPool.class);
+        when(tokenPool.availableBudget()).thenReturn(2_000).thenReturn(500);
+        PrefetchScheduler scheduler = scheduler(Duration.ofMinutes(4), 10, tokenPool, 1_000);
+        cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        cachingGitHubService.getUserRepositories("hot", 1, List.of()).block();
+        cachingGitHubService.getUserRepositories("warm", 1, List.of()).block();
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        // Act
+        Integer reloaded = scheduler.run().block();
+
+        // Assert
+        assertEquals(1, reloaded);
+        verify(delegate).refreshUserRepositories("hot", REPOSITORIES);
+        verify(delegate, never()).refreshUserRepositories(eq("warm"), any());
+    }
+
+    private PrefetchScheduler scheduler(Duration interval, int maxRefreshes, GitHubTokenPool tokenPool, int minRemaining) {
+        return new PrefetchScheduler(cachingGitHubService, tokenPool, interval, 10, 100, maxRefreshes, 2,
+                minRemaining, new SimpleMeterRegistry(), false);
+    }
+}
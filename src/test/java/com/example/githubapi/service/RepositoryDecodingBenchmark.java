@@ -0,0 +1,70 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.stub.GitHubStub;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode time and allocation for one 100-repository page of GitHub's {@code /users/{user}/repos}
+ * payload: untyped {@code Map[]} versus the {@link GitHubServiceImpl.RepositoryResponse} records.
+ * Run {@link #main} from the test classpath; {@code gc.alloc.rate.norm} is bytes allocated per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryDecodingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private byte[] page;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Map<String, Object>> repositories = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            repositories.add(GitHubStub.repository("testuser", i, i % 5 == 0));
+        }
+        page = objectMapper.writeValueAsBytes(repositories);
+    }
+
+    @Benchmark
+    public Map[] decodeMaps() throws IOException {
+        return objectMapper.readValue(page, Map[].class);
+    }
+
+    @Benchmark
+    public GitHubServiceImpl.RepositoryResponse[] decodeTypedRecords() throws IOException {
+        return objectMapper.readValue(page, GitHubServiceImpl.RepositoryResponse[].class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RepositoryDecodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
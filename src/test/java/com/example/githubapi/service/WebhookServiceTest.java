@@ -0,0 +1,194 @@
+package com.example.githubapi.service;
+
+import com.example.githubapi.exceptions.InvalidWebhookSignatureException;
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import com.example.githubapi.model.WebhookResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WebhookServiceTest {
+
+    private static final String SECRET = "It's a Secret to Everybody";
+    private static final String BEFORE = "6113728f27ae82c7b1a177c8d03f9e96e0adf246";
+    private static final String AFTER = "7fd1a60b01f91b314f59955a4e4d4e80d8edf11d";
+
+    @Mock
+    private GitHubService delegate;
+
+    private CachingGitHubService cachingGitHubService;
+    private WebhookService webhookService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cachingGitHubService = new CachingGitHubService(delegate, Duration.ofMinutes(5), Duration.ofMinutes(30),
+                1_000, () -> 0L, Runnable::run);
+        webhookService = new WebhookService(cachingGitHubService, new ObjectMapper(), SECRET, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void handle_PushSetsTheBranchHeadWithoutCallingGitHub() throws IOException {
+        // Arrange
+        cache("Octocat", new Repository("Hello-World", "octocat",
+                List.of(new Branch("main", BEFORE), new Branch("feature", "aaa111"))));
+
+        // Act
+        WebhookResult result = deliver("push", "push.json");
+
+        // Assert
+        assertEquals(WebhookService.UPDATED, result.outcome());
+        assertEquals(List.of(new Branch("main", AFTER), new Branch("feature", "aaa111")),
+                cachedBranches("octocat", "Hello-World"));
+        verify(delegate, never()).getBranches(anyString(), anyString());
+    }
+
+    @Test
+    void handle_PushAfterAMissedDeliveryRefetchesThatRepository() throws IOException {
+        // Arrange
+        cache("octocat", new Repository("Hello-World", "octocat", List.of(new Branch("main", "0000000"))));
+        when(delegate.getBranches("octocat", "Hello-World"))
+                .thenReturn(Mono.just(List.of(new Branch("main", AFTER))));
+
+        // Act
+        WebhookResult result = deliver("push", "push.json");
+
+        // Assert
+        assertEquals(WebhookService.UPDATED, result.outcome());
+        assertEquals(List.of(new Branch("main", AFTER)), cachedBranches("octocat", "Hello-World"));
+        verify(delegate, times(1)).getBranches("octocat", "Hello-World");
+    }
+
+    @Test
+    void handle_CreatedBranchIsFetchedAndDeletedBranchRemoved() throws IOException {
+        // Arrange
+        cache("octocat", new Repository("Hello-World", "octocat",
+                List.of(new Branch("main", BEFORE), new Branch("feature", "aaa111"))));
+        when(delegate.getBranches("octocat", "Hello-World")).thenReturn(Mono.just(List.of(
+                new Branch("main", BEFORE), new Branch("feature", "aaa111"), new Branch("release", "bbb222"))));
+
+        // Act
+        deliver("create", "create-branch.json");
+        deliver("delete", "delete-branch.json");
+
+        // Assert
+        assertEquals(List.of(new Branch("main", BEFORE), new Branch("release", "bbb222")),
+                cachedBranches("octocat", "Hello-World"));
+    }
+
+    @Test
+    void handle_RenamedRepositoryKeepsItsBranches() throws IOException {
+        // Arrange
+        List<Branch> branches = List.of(new Branch("main", BEFORE));
+        cache("octocat", new Repository("Hello-World", "octocat", branches),
+                new Repository("Spoon-Knife", "octocat", List.of()));
+
+        // Act
+        deliver("repository", "repository-renamed.json");
+
+        // Assert
+        List<Repository> repositories = cachingGitHubService.cachedRepositories("octocat").orElseThrow();
+        assertEquals(List.of("Hello-Universe", "Spoon-Knife"), repositories.stream().map(Repository::name).toList());
+        assertEquals(branches, repositories.get(0).branches());
+    }
+
+    @Test
+    void handle_DeletedRepositoryIsRemoved() throws IOException {
+        // Arrange
+        cache("octocat", new Repository("Hello-World", "octocat", List.of(new Branch("main", BEFORE))),
+                new Repository("Spoon-Knife", "octocat", List.of()));
+
+        // Act
+        WebhookResult result = deliver("repository", "repository-deleted.json");
+
+        // Assert
+        assertEquals(WebhookService.UPDATED, result.outcome());
+        assertEquals(List.of("Spoon-Knife"), cachingGitHubService.cachedRepositories("octocat").orElseThrow().stream()
+                .map(Repository::name)
+                .toList());
+    }
+
+    @Test
+    void handle_ForksAndUncachedUsersLeaveTheCacheAlone() throws IOException {
+        // Act
+        WebhookResult fork = deliver("fork", "fork.json");
+        WebhookResult push = deliver("push", "push.json");
+
+        // Assert
+        assertEquals(WebhookService.IGNORED, fork.outcome());
+        assertEquals(WebhookService.NOT_CACHED, push.outcome());
+        verify(delegate, never()).getBranches(anyString(), anyString());
+        verify(delegate, never()).getUserRepositories(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void handle_RejectsAnInvalidSignature() throws IOException {
+        // Arrange
+        byte[] body = payload("push.json");
+        String forged = sign(payload("fork.json"));
+
+        // Act & Assert
+        assertThrows(InvalidWebhookSignatureException.class,
+                () -> webhookService.handle("push", forged, body).block());
+        assertThrows(InvalidWebhookSignatureException.class,
+                () -> webhookService.handle("push", null, body).block());
+    }
+
+    private void cache(String username, Repository... repositories) {
+        // The cache asks GitHub with the login lowercased, as its key
+        when(delegate.getUserRepositories(eq(username.toLowerCase(Locale.ROOT)), eq(1), any()))
+                .thenReturn(Mono.just(List.of(repositories)));
+        cachingGitHubService.getUserRepositories(username, 1, List.of()).block();
+    }
+
+    private List<Branch> cachedBranches(String username, String repository) {
+        return cachingGitHubService.cachedRepositories(username).orElseThrow().stream()
+                .filter(r -> r.name().equals(repository))
+                .findFirst()
+                .orElseThrow()
+                .branches();
+    }
+
+    private WebhookResult deliver(String event, String resource) throws IOException {
+        byte[] body = payload(resource);
+        return webhookService.handle(event, sign(body), body).block();
+    }
+
+    private static byte[] payload(String resource) throws IOException {
+        try (InputStream in = WebhookServiceTest.class.getResourceAsStream("/webhooks/" + resource)) {
+            assertNotNull(in, resource);
+            return in.readAllBytes();
+        }
+    }
+
+    private static String sign(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
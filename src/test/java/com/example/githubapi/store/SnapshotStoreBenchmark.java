@@ -0,0 +1,110 @@
+package com.example.githubapi.store;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup-to-warm time (opening a log of {@code users} snapshots and rebuilding its index) and
+ * read latency of a single snapshot. Each user has 30 repositories with 5 branches each.
+ * Run {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotStoreBenchmark {
+
+    @Param({"1000", "10000"})
+    private int users;
+
+    private Path directory;
+    private Path log;
+    private SnapshotStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        log = directory.resolve("snapshots.log");
+        try (SnapshotStore writer = open()) {
+            for (int i = 0; i < users; i++) {
+                writer.put("user" + i, repositories("user" + i));
+            }
+        }
+        store = open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int openAndIndex() throws IOException {
+        try (SnapshotStore reopened = open()) {
+            return reopened.size();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Snapshot read() {
+        return store.get("user" + ThreadLocalRandom.current().nextInt(users)).orElseThrow();
+    }
+
+    private SnapshotStore open() throws IOException {
+        return new SnapshotStore(log, Duration.ofDays(1), new SimpleMeterRegistry());
+    }
+
+    private static List<Repository> repositories(String username) {
+        List<Repository> repositories = new ArrayList<>();
+        for (int r = 0; r < 30; r++) {
+            List<Branch> branches = new ArrayList<>();
+            for (int b = 0; b < 5; b++) {
+                branches.add(new Branch("branch" + b, String.format("%040x", (long) r * 31 + b)));
+            }
+            repositories.add(new Repository("repo" + r, username, branches));
+        }
+        return repositories;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnapshotStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.githubapi.store;
+
+import com.example.githubapi.model.Branch;
+import com.example.githubapi.model.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+    private static final List<Repository> REPOSITORIES = List.of(
+            new Repository("repo1", "testuser", List.of(
+                    new Branch("main", "0123456789abcdef0123456789abcdef01234567"),
+                    new Branch("feature", null)), false, Instant.parse("2024-05-30T08:15:00Z")),
+            new Repository("repo2", "other-owner", List.of(new Branch("dev", "not-a-sha"))),
+            Repository.withoutBranches("repo3", "testuser"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void get_ReturnsWhatWasPut() throws IOException {
+        // Arrange
+        try (SnapshotStore store = open(Duration.ofHours(1))) {
+            // Act
+            store.put("testuser", REPOSITORIES);
+
+            // Assert
+            Snapshot snapshot = store.get("testuser").orElseThrow();
+            assertEquals(REPOSITORIES, snapshot.repositories());
+            assertEquals(CLOCK.instant(), snapshot.savedAt());
+            assertTrue(store.get("unknown").isEmpty());
+        }
+    }
+
+    @Test
+    void open_RestoresSnapshotsAfterRestart() throws IOException {
+        // Arrange
+        try (SnapshotStore store = open(Duration.ofHours(1))) {
+            store.put("testuser", REPOSITORIES);
+            store.put("removed", REPOSITORIES);
+            store.remove("removed");
+        }
+
+        // Act
+        try (SnapshotStore reopened = open(Duration.ofHours(1))) {
+            // Assert
+            assertEquals(1, reopened.size());
+            assertEquals(REPOSITORIES, reopened.get("testuser").orElseThrow().repositories());
+            assertFalse(reopened.contains("removed"));
+        }
+    }
+
+    @Test
+    void open_TruncatesTornRecordAtTheEnd() throws IOException {
+        // Arrange
+        Path log = directory.resolve("snapshots.log");
+        try (SnapshotStore store = open(Duration.ofHours(1))) {
+            store.put("testuser", REPOSITORIES);
+            store.put("other", REPOSITORIES);
+        }
+        long fullSize = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(fullSize - 5);
+        }
+
+        // Act
+        try (SnapshotStore reopened = open(Duration.ofHours(1))) {
+            reopened.put("third", REPOSITORIES);
+
+            // Assert
+            assertTrue(reopened.contains("testuser"));
+            assertFalse(reopened.contains("other"));
+            assertEquals(REPOSITORIES, reopened.get("third").orElseThrow().repositories());
+        }
+    }
+
+    @Test
+    void get_IgnoresSnapshotsOlderThanMaxAge() throws IOException {
+        // Arrange
+        try (SnapshotStore store = open(Duration.ofHours(1))) {
+            store.put("testuser", REPOSITORIES);
+        }
+
+        // Act
+        Clock later = Clock.offset(CLOCK, Duration.ofHours(2));
+        try (SnapshotStore reopened = new SnapshotStore(directory.resolve("snapshots.log"), Duration.ofHours(1), later)) {
+            // Assert
+            assertFalse(reopened.contains("testuser"));
+            assertTrue(reopened.get("testuser").isEmpty());
+        }
+    }
+
+    @Test
+    void put_CompactsSupersededRecords() throws IOException {
+        // Arrange
+        Path log = directory.resolve("snapshots.log");
+        List<Repository> large = IntStream.range(0, 500)
+                .mapToObj(i -> new Repository("repo" + i, "testuser", List.of(new Branch("main", null))))
+                .toList();
+
+        try (SnapshotStore store = open(Duration.ofHours(1))) {
+            // Act: rewrite the same user until the log would pass the compaction threshold several times
+            for (int i = 0; i < 1000; i++) {
+                store.put("testuser", large);
+            }
+
+            // Assert
+            assertTrue(Files.size(log) < 2 * 1024 * 1024, "log size " + Files.size(log));
+            assertEquals(large, store.get("testuser").orElseThrow().repositories());
+        }
+        try (SnapshotStore reopened = open(Duration.ofHours(1))) {
+            assertEquals(large, reopened.get("testuser").orElseThrow().repositories());
+        }
+    }
+
+    private SnapshotStore open(Duration maxAge) throws IOException {
+        return new SnapshotStore(directory.resolve("snapshots.log"), maxAge, CLOCK);
+    }
+}
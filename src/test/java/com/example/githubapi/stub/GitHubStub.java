@@ -0,0 +1,403 @@
+package com.example.githubapi.stub;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * In-process stand-in for the two GitHub REST endpoints the service calls, and for the two
+ * GraphQL queries of the GraphQL mode, for benchmarks and load tests that must not depend on
+ * the network. Every user has {@code repositories} non-fork repositories with
+ * {@code branchesPerRepository} branches each; listings are paged like GitHub's
+ * ({@code per_page} capped at {@code maxPageSize}, {@code Link} headers with {@code rel="next"}
+ * and {@code rel="last"}), GraphQL connections by cursor with {@code first} capped the same way.
+ * <ul>
+ *     <li>Each REST endpoint has its own {@link Latency} distribution; GraphQL queries take the
+ *     repository listing's.</li>
+ *     <li>A fraction {@code errorRate} of responses are {@code 502 Bad Gateway}.</li>
+ *     <li>With a {@code rateLimit}, responses carry {@code X-RateLimit-*} headers counting down
+ *     a shared budget that resets every {@code rateLimitWindow}; once it is spent requests are
+ *     refused with {@code 403} until the reset, as GitHub does.</li>
+ * </ul>
+ * Repository objects have the shape and size of real ones, so decoding costs are realistic.
+ * Response bodies are rendered once per URL and then served from memory, so the stub itself
+ * stays cheap next to the code being measured.
+ */
+public final class GitHubStub implements AutoCloseable {
+
+    public record Settings(int repositories, int branchesPerRepository, int maxPageSize,
+                           Latency repositoryLatency, Latency branchLatency, double errorRate,
+                           int rateLimit, Duration rateLimitWindow) {
+
+        public static Settings defaults() {
+            return new Settings(30, 5, 100, Latency.NONE, Latency.NONE, 0, 0, Duration.ofHours(1));
+        }
+
+        public Settings withRepositories(int repositories, int branchesPerRepository) {
+            return new Settings(repositories, branchesPerRepository, maxPageSize, repositoryLatency, branchLatency,
+                    errorRate, rateLimit, rateLimitWindow);
+        }
+
+        public Settings withLatency(Latency repositoryLatency, Latency branchLatency) {
+            return new Settings(repositories, branchesPerRepository, maxPageSize, repositoryLatency, branchLatency,
+                    errorRate, rateLimit, rateLimitWindow);
+        }
+
+        public Settings withErrorRate(double errorRate) {
+            return new Settings(repositories, branchesPerRepository, maxPageSize, repositoryLatency, branchLatency,
+                    errorRate, rateLimit, rateLimitWindow);
+        }
+
+        public Settings withRateLimit(int rateLimit, Duration rateLimitWindow) {
+            return new Settings(repositories, branchesPerRepository, maxPageSize, repositoryLatency, branchLatency,
+                    errorRate, rateLimit, rateLimitWindow);
+        }
+    }
+
+    /**
+     * Log-normal response time with the given median and 99th percentile, the usual shape of
+     * network latency: most responses close to the median, with a long tail.
+     */
+    public record Latency(Duration median, Duration p99) {
+
+        public static final Latency NONE = new Latency(Duration.ZERO, Duration.ZERO);
+
+        /** The 99th percentile of the standard normal distribution. */
+        private static final double Z_99 = 2.326;
+
+        public static Latency fixed(Duration latency) {
+            return new Latency(latency, latency);
+        }
+
+        Duration sample() {
+            if (median.isZero()) {
+                return Duration.ZERO;
+            }
+            double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+            double nanos = median.toNanos() * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+            return Duration.ofNanos((long) nanos);
+        }
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Settings settings;
+    private final Map<String, byte[]> bodies = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Object rateLimitLock = new Object();
+    private long rateLimitReset;
+    private int rateLimitRemaining;
+    private final DisposableServer server;
+
+    private GitHubStub(Settings settings) {
+        this.settings = settings;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .get("/users/{user}/repos", (request, response) -> listing(request, response,
+                                settings.repositories(), settings.repositoryLatency(),
+                                i -> repository(request.param("user"), i, false)))
+                        .get("/repos/{owner}/{repo}/branches", (request, response) -> listing(request, response,
+                                settings.branchesPerRepository(), settings.branchLatency(),
+                                i -> branch(request.param("repo"), i)))
+                        .post("/graphql", this::graphQl))
+                .bindNow();
+    }
+
+    public static GitHubStub start(Settings settings) {
+        return new GitHubStub(settings);
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    /** Requests answered so far. */
+    public long requests() {
+        return requests.get();
+    }
+
+    /** Requests answered with an injected error or a rate-limit refusal. */
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private Mono<Void> listing(HttpServerRequest request, HttpServerResponse response, int total, Latency latency,
+                               IntFunction<Map<String, Object>> item) {
+        requests.incrementAndGet();
+        Duration delay = latency.sample();
+        Mono<Void> refused = refuse(response, delay);
+        if (refused != null) {
+            return refused;
+        }
+
+        QueryStringDecoder query = new QueryStringDecoder(request.uri());
+        int perPage = Math.min(intParam(query, "per_page", 30), settings.maxPageSize());
+        int page = intParam(query, "page", 1);
+        int last = Math.max(1, (total + perPage - 1) / perPage);
+
+        byte[] body = bodies.computeIfAbsent(request.uri(), uri -> {
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (int i = (page - 1) * perPage; i < Math.min(total, page * perPage); i++) {
+                items.add(item.apply(i));
+            }
+            return json(items);
+        });
+
+        if (page < last) {
+            String path = baseUrl() + query.path() + "?per_page=" + perPage + "&page=";
+            response.header("Link", "<" + path + (page + 1) + ">; rel=\"next\", <" + path + last + ">; rel=\"last\"");
+        }
+        return respond(response, delay, body);
+    }
+
+    /**
+     * Answers the repositories query (a {@code login} variable) with a page of repositories and
+     * their first refs, and the branches query (an {@code owner} variable) with a page of refs.
+     * Cursors are the index of the next item.
+     */
+    private Mono<Void> graphQl(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        Duration delay = settings.repositoryLatency().sample();
+        Mono<Void> refused = refuse(response, delay);
+        if (refused != null) {
+            return refused;
+        }
+        return request.receive().aggregate().asByteArray().flatMap(content -> {
+            JsonNode variables = readTree(content).path("variables");
+            int refsPageSize = Math.min(variables.path("refsPageSize").asInt(100), settings.maxPageSize());
+            byte[] body = bodies.computeIfAbsent("graphql " + variables, key -> {
+                if (variables.has("login")) {
+                    String login = variables.path("login").asText();
+                    int from = variables.path("cursor").asInt(0);
+                    int to = Math.min(settings.repositories(),
+                            from + Math.min(variables.path("pageSize").asInt(100), settings.maxPageSize()));
+                    List<Map<String, Object>> nodes = new ArrayList<>();
+                    for (int i = from; i < to; i++) {
+                        nodes.add(Map.of("name", "repo" + i, "owner", Map.of("login", login),
+                                "refs", refs("repo" + i, 0, refsPageSize)));
+                    }
+                    return json(Map.of("data", Map.of("repositoryOwner", Map.of("repositories",
+                            connection(nodes, to, to < settings.repositories())))));
+                }
+                Map<String, Object> refs = refs(variables.path("name").asText(), variables.path("cursor").asInt(0),
+                        refsPageSize);
+                return json(Map.of("data", Map.of("repository", Map.of("refs", refs))));
+            });
+            return respond(response, delay, body);
+        });
+    }
+
+    private Map<String, Object> refs(String repository, int from, int pageSize) {
+        int to = Math.min(settings.branchesPerRepository(), from + pageSize);
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Map<String, Object> branch = branch(repository, i);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> commit = (Map<String, Object>) branch.get("commit");
+            nodes.add(Map.of("name", branch.get("name"), "target", Map.of("oid", commit.get("sha"))));
+        }
+        return connection(nodes, to, to < settings.branchesPerRepository());
+    }
+
+    private static Map<String, Object> connection(List<Map<String, Object>> nodes, int next, boolean hasNextPage) {
+        return Map.of("pageInfo", Map.of("hasNextPage", hasNextPage, "endCursor", String.valueOf(next)),
+                "nodes", nodes);
+    }
+
+    /**
+     * The refusal when the request is rate limited or picked for an injected error, otherwise
+     * {@code null}.
+     */
+    private Mono<Void> refuse(HttpServerResponse response, Duration delay) {
+        if (!applyRateLimit(response)) {
+            errors.incrementAndGet();
+            return respond(response.status(403), delay,
+                    "{\"message\": \"API rate limit exceeded\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        if (settings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+            errors.incrementAndGet();
+            return respond(response.status(502), delay, "{\"message\": \"Server Error\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    private static Mono<Void> respond(HttpServerResponse response, Duration delay, byte[] body) {
+        response.header("Content-Type", "application/json");
+        Mono<Void> send = response.sendByteArray(Mono.just(body)).then();
+        return delay.isZero() ? send : Mono.delay(delay).then(send);
+    }
+
+    /**
+     * Takes one request from the shared budget and sets the rate-limit headers; {@code false}
+     * when the budget is spent.
+     */
+    private boolean applyRateLimit(HttpServerResponse response) {
+        if (settings.rateLimit() <= 0) {
+            return true;
+        }
+        long reset;
+        int remaining;
+        boolean allowed;
+        synchronized (rateLimitLock) {
+            long now = System.currentTimeMillis() / 1000;
+            if (now >= rateLimitReset) {
+                rateLimitReset = now + settings.rateLimitWindow().toSeconds();
+                rateLimitRemaining = settings.rateLimit();
+            }
+            allowed = rateLimitRemaining > 0;
+            if (allowed) {
+                rateLimitRemaining--;
+            }
+            reset = rateLimitReset;
+            remaining = rateLimitRemaining;
+        }
+        response.header("X-RateLimit-Limit", String.valueOf(settings.rateLimit()))
+                .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                .header("X-RateLimit-Reset", String.valueOf(reset))
+                .header("X-RateLimit-Used", String.valueOf(settings.rateLimit() - remaining));
+        return allowed;
+    }
+
+    private static int intParam(QueryStringDecoder query, String name, int defaultValue) {
+        List<String> values = query.parameters().get(name);
+        return values == null || values.isEmpty() ? defaultValue : Integer.parseInt(values.get(0));
+    }
+
+    private static JsonNode readTree(byte[] content) {
+        try {
+            return OBJECT_MAPPER.readTree(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] json(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> branch(String repository, int i) {
+        Map<String, Object> branch = new LinkedHashMap<>();
+        branch.put("name", i == 0 ? "main" : "branch" + i);
+        branch.put("commit", Map.of(
+                "sha", String.format("%040x", (long) repository.hashCode() * 31 + i),
+                "url", "https://api.github.com/repos/" + repository + "/commits/" + i));
+        branch.put("protected", i == 0);
+        return branch;
+    }
+
+    /**
+     * Shape and size of a real repository object: about 80 top-level fields plus nested
+     * owner, license and permissions objects.
+     */
+    public static Map<String, Object> repository(String login, int i, boolean fork) {
+        String fullName = login + "/repo" + i;
+        String apiUrl = "https://api.github.com/repos/" + fullName;
+
+        Map<String, Object> owner = new LinkedHashMap<>();
+        owner.put("login", login);
+        owner.put("id", 1_000_000);
+        owner.put("node_id", "MDQ6VXNlcjEwMDAwMDA=");
+        owner.put("avatar_url", "https://avatars.githubusercontent.com/u/1000000?v=4");
+        owner.put("gravatar_id", "");
+        for (String link : List.of("url", "html_url", "followers_url", "following_url", "gists_url", "starred_url",
+                "subscriptions_url", "organizations_url", "repos_url", "events_url", "received_events_url")) {
+            owner.put(link, "https://api.github.com/users/" + login + "/" + link);
+        }
+        owner.put("type", "User");
+        owner.put("site_admin", false);
+
+        Map<String, Object> license = new LinkedHashMap<>();
+        license.put("key", "mit");
+        license.put("name", "MIT License");
+        license.put("spdx_id", "MIT");
+        license.put("url", "https://api.github.com/licenses/mit");
+        license.put("node_id", "MDc6TGljZW5zZTEz");
+
+        Map<String, Object> repository = new LinkedHashMap<>();
+        repository.put("id", 100_000 + i);
+        repository.put("node_id", "MDEwOlJlcG9zaXRvcnkx" + i);
+        repository.put("name", "repo" + i);
+        repository.put("full_name", fullName);
+        repository.put("private", false);
+        repository.put("owner", owner);
+        repository.put("html_url", "https://github.com/" + fullName);
+        repository.put("description", "Description of repository number " + i);
+        repository.put("fork", fork);
+        repository.put("url", apiUrl);
+        for (String link : List.of("forks_url", "keys_url", "collaborators_url", "teams_url", "hooks_url",
+                "issue_events_url", "events_url", "assignees_url", "branches_url", "tags_url", "blobs_url",
+                "git_tags_url", "git_refs_url", "trees_url", "statuses_url", "languages_url", "stargazers_url",
+                "contributors_url", "subscribers_url", "subscription_url", "commits_url", "git_commits_url",
+                "comments_url", "issue_comment_url", "contents_url", "compare_url", "merges_url", "archive_url",
+                "downloads_url", "issues_url", "pulls_url", "milestones_url", "notifications_url", "labels_url",
+                "releases_url", "deployments_url")) {
+            repository.put(link, apiUrl + "/" + link.replace("_url", "{/id}"));
+        }
+        repository.put("created_at", "2020-01-01T00:00:00Z");
+        repository.put("updated_at", "2024-06-01T12:00:00Z");
+        repository.put("pushed_at", "2024-06-01T12:00:00Z");
+        repository.put("git_url", "git://github.com/" + fullName + ".git");
+        repository.put("ssh_url", "git@github.com:" + fullName + ".git");
+        repository.put("clone_url", "https://github.com/" + fullName + ".git");
+        repository.put("svn_url", "https://github.com/" + fullName);
+        repository.put("homepage", null);
+        repository.put("size", 1024 + i);
+        repository.put("stargazers_count", i);
+        repository.put("watchers_count", i);
+        repository.put("language", "Java");
+        repository.put("has_issues", true);
+        repository.put("has_projects", true);
+        repository.put("has_downloads", true);
+        repository.put("has_wiki", true);
+        repository.put("has_pages", false);
+        repository.put("has_discussions", false);
+        repository.put("forks_count", 0);
+        repository.put("mirror_url", null);
+        repository.put("archived", false);
+        repository.put("disabled", false);
+        repository.put("open_issues_count", 0);
+        repository.put("license", license);
+        repository.put("allow_forking", true);
+        repository.put("is_template", false);
+        repository.put("web_commit_signoff_required", false);
+        repository.put("topics", List.of("java", "spring", "github"));
+        repository.put("visibility", "public");
+        repository.put("forks", 0);
+        repository.put("open_issues", 0);
+        repository.put("watchers", i);
+        repository.put("default_branch", "main");
+        repository.put("permissions", Map.of("admin", false, "maintain", false, "push", false, "triage", false, "pull", true));
+        return repository;
+    }
+}